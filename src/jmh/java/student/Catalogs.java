@@ -0,0 +1,128 @@
+package student;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Synthetic catalogs for the benchmarks.
+ *
+ * A catalog of a given number of rows is written once to the catalog directory (the
+ * bench.catalogs system property, build/jmh-catalogs by default) and reused by every run after
+ * that. The rows come from a fixed seed, so the catalogs are the same on every machine.
+ */
+final class Catalogs {
+    /** Seed of the generator. */
+    private static final long SEED = 5004;
+    /** Words the names are made of, a few repeat a lot like real titles do. */
+    private static final String[] WORDS = {"The", "of", "Castle", "Dragon", "Pandemic", "Ticket",
+        "Ride", "Empire", "Island", "Quest", "Forest", "Galaxy", "Trade", "Kingdom", "Legends",
+        "Harbor", "Rails", "Farm", "Mystery", "Tower", "Dice", "Cards", "Age", "Steam", "Spirit",
+        "Ocean", "Night", "City", "Wars", "Gold"};
+    /** Header of the catalogs, only the columns the loader reads. */
+    private static final String HEADER = "objectname,objectid,average,avgweight,rank,minplayers,"
+            + "maxplayers,maxplaytime,minplaytime,yearpublished";
+
+    /** private constructor to prevent instantiation. */
+    private Catalogs() {
+    }
+
+    /**
+     * Get the directory the catalogs are written to.
+     *
+     * @return the catalog directory.
+     */
+    static Path directory() {
+        return Path.of(System.getProperty("bench.catalogs", "build/jmh-catalogs"));
+    }
+
+    /**
+     * Get the resource name of a catalog, for GamesLoader.loadGamesFile. The catalog
+     * directory must be on the classpath, the jmh task puts it there.
+     *
+     * @param rows number of rows.
+     * @return the resource name.
+     */
+    static String resource(int rows) {
+        file(rows);
+        return "/" + fileName(rows);
+    }
+
+    /**
+     * Get the file of a catalog, writing it if it does not exist yet.
+     *
+     * @param rows number of rows.
+     * @return the csv file.
+     */
+    static synchronized Path file(int rows) {
+        Path file = directory().resolve(fileName(rows));
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path partial = file.resolveSibling(file.getFileName() + ".part");
+            write(partial, rows);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the file name of a catalog.
+     *
+     * @param rows number of rows.
+     * @return the file name.
+     */
+    private static String fileName(int rows) {
+        return "catalog-" + rows + ".csv";
+    }
+
+    /**
+     * Writes a catalog.
+     *
+     * @param file the file to write.
+     * @param rows number of rows.
+     * @throws IOException if the file can not be written.
+     */
+    private static void write(Path file, int rows) throws IOException {
+        Random random = new Random(SEED);
+        StringBuilder line = new StringBuilder();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (int id = 1; id <= rows; id++) {
+                line.setLength(0);
+                int words = 1 + random.nextInt(3);
+                for (int w = 0; w < words; w++) {
+                    // skew towards the first words, so some names share a lot of trigrams.
+                    int word = Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length));
+                    line.append(w == 0 ? "" : " ").append(WORDS[word]);
+                }
+                if (random.nextInt(4) != 0) {
+                    line.append(' ').append(random.nextInt(rows));
+                }
+                int minPlayers = 1 + random.nextInt(4);
+                int minTime = 5 * (1 + random.nextInt(24));
+                line.append(',').append(id)
+                        .append(',').append(random.nextInt(1000) / 100.0)
+                        .append(',').append(1 + random.nextInt(400) / 100.0)
+                        .append(',').append(random.nextInt(rows) + 1)
+                        .append(',').append(minPlayers)
+                        .append(',').append(minPlayers + random.nextInt(8))
+                        .append(',').append(minTime + 5 * random.nextInt(24))
+                        .append(',').append(minTime)
+                        .append(',').append(1950 + random.nextInt(75));
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package student;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planner.filter with 1, 3 and 8 clauses on an indexed store.
+ *
+ * The results are sorted on ID, which walks the ID index of the store, so mostly the filter and
+ * building the BoardGame objects are measured. The cold benchmark empties the clause bitmap cache first, the warm one does
+ * not, which is what repeating a query costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+    /** Number of rows in the catalog. */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /** Number of clauses in the filter. */
+    @Param({"1", "3", "8"})
+    public int clauses;
+
+    /** The catalog. */
+    private GameStore store;
+    /** The filter. */
+    private String filter;
+
+    /**
+     * Loads the catalog and picks the filter.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        store = GamesLoader.loadGameStore(Catalogs.file(rows), true);
+        switch (clauses) {
+            case 1:
+                filter = "minPlayers>=2";
+                break;
+            case 3:
+                filter = "minPlayers>=2, rating>6.5, name~=dragon";
+                break;
+            default:
+                filter = "minPlayers>=2, maxPlayers<=8, minPlayTime>=15, maxPlayTime<=180, "
+                        + "difficulty>1.5, rating>6.0, year>=1995, name~=an";
+        }
+    }
+
+    /**
+     * Filters with an empty bitmap cache.
+     *
+     * @param bh consumes the games.
+     */
+    @Benchmark
+    public void filterCold(Blackhole bh) {
+        store.clearBitmapCache();
+        new Planner(store).filter(filter, GameData.ID).forEach(bh::consume);
+    }
+
+    /**
+     * Filters with the bitmaps of the clauses in the cache.
+     *
+     * @param bh consumes the games.
+     */
+    @Benchmark
+    public void filterWarm(Blackhole bh) {
+        new Planner(store).filter(filter, GameData.ID).forEach(bh::consume);
+    }
+}
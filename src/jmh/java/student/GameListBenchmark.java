@@ -0,0 +1,98 @@
+package student;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameList.addToList and removeFromList with ranges, on the catalog sorted by name.
+ *
+ * The games are materialized once and passed as a list, so the list operations are measured and
+ * not the planner or a copy of the stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameListBenchmark {
+    /** Number of rows in the catalog. */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /** Number of games in the ranges. */
+    @Param({"100", "10000"})
+    public int range;
+
+    /** The catalog, sorted by name. */
+    private List<BoardGame> games;
+    /** Range that adds games from the middle of the catalog. */
+    private String addRange;
+    /** Range that removes the first half of the list. */
+    private String removeRange;
+
+    /**
+     * Loads and sorts the catalog.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        games = new Planner(GamesLoader.loadGameStore(Catalogs.file(rows), true)).filter("").toList();
+        int from = Math.max(1, games.size() / 2 - range / 2);
+        int to = Math.min(games.size(), from + range - 1);
+        addRange = from + "-" + to;
+        removeRange = "1-" + Math.max(1, (to - from + 1) / 2);
+    }
+
+    /**
+     * Adds a range of games to an empty list.
+     *
+     * @return the list.
+     */
+    @Benchmark
+    public IGameList addRange() {
+        IGameList list = new GameList();
+        list.addToList(addRange, games);
+        return list;
+    }
+
+    /**
+     * Adds a range of games, then removes the first half of the list by range.
+     *
+     * @return the list.
+     */
+    @Benchmark
+    public IGameList addThenRemoveRange() {
+        IGameList list = new GameList();
+        list.addToList(addRange, games);
+        list.removeFromList(removeRange);
+        return list;
+    }
+
+    /**
+     * Adds single games by their index, one call per game.
+     *
+     * @return the list.
+     */
+    @Benchmark
+    public IGameList addByIndex() {
+        IGameList list = new GameList();
+        int from = Integer.parseInt(addRange.substring(0, addRange.indexOf('-')));
+        for (int i = 0; i < Math.min(range, 100); i++) {
+            list.addToList(Integer.toString(from + i), games);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,91 @@
+package student;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a catalog: the csv to a Set of BoardGame, and the csv or a snapshot to a GameStore.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class LoadBenchmark {
+    /** Number of rows in the catalog. */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /** Resource name of the catalog. */
+    private String resource;
+    /** Csv file of the catalog. */
+    private Path file;
+    /** Snapshot of the catalog. */
+    private Path snapshot;
+
+    /**
+     * Writes the catalog and its snapshot if they do not exist yet.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        resource = Catalogs.resource(rows);
+        file = Catalogs.file(rows);
+        snapshot = file.resolveSibling(file.getFileName() + ".bgas");
+        GamesLoader.saveSnapshot(GamesLoader.loadGameStore(file, true), snapshot);
+    }
+
+    /**
+     * The original entry point, the csv streamed to a Set of BoardGame.
+     *
+     * @return the games.
+     */
+    @Benchmark
+    public Set<BoardGame> loadGamesFile() {
+        return GamesLoader.loadGamesFile(resource);
+    }
+
+    /**
+     * The csv mapped and parsed in parallel, without the indexes.
+     *
+     * @return the store.
+     */
+    @Benchmark
+    public GameStore loadGameStore() {
+        return GamesLoader.loadGameStore(file, false);
+    }
+
+    /**
+     * The csv mapped and parsed in parallel, with the indexes.
+     *
+     * @return the store.
+     */
+    @Benchmark
+    public GameStore loadIndexedGameStore() {
+        return GamesLoader.loadGameStore(file, true);
+    }
+
+    /**
+     * The snapshot, with the indexes.
+     *
+     * @return the store.
+     */
+    @Benchmark
+    public GameStore loadSnapshot() {
+        return GamesLoader.loadSnapshot(snapshot, true);
+    }
+}
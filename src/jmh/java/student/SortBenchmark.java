@@ -0,0 +1,97 @@
+package student;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting the whole catalog on each GameData column, both directions, and selecting only the
+ * first page of the sorted catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SortBenchmark {
+    /** Number of rows in the catalog. */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /** Column to sort on. */
+    @Param({"NAME", "ID", "RATING", "DIFFICULTY", "RANK", "MIN_PLAYERS", "MAX_PLAYERS", "MIN_TIME",
+        "MAX_TIME", "YEAR"})
+    public GameData sortOn;
+
+    /** Sort direction. */
+    @Param({"true", "false"})
+    public boolean ascending;
+
+    /** The catalog. */
+    private GameStore store;
+
+    /**
+     * Loads the catalog.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        store = GamesLoader.loadGameStore(Catalogs.file(rows), true);
+    }
+
+    /**
+     * Sorts every game of the catalog.
+     *
+     * @param bh consumes the games.
+     */
+    @Benchmark
+    public void sort(Blackhole bh) {
+        new Planner(store).filter("", sortOn, ascending).forEach(bh::consume);
+    }
+
+    /**
+     * Selects the first 20 games of the sorted catalog.
+     *
+     * @param bh consumes the games.
+     */
+    @Benchmark
+    public void top20(Blackhole bh) {
+        new Planner(store).filter("", sortOn, ascending, 0, 20).getGames().forEach(bh::consume);
+    }
+
+    /**
+     * Sorts every game of the catalog on three columns, the first one with few values so the
+     * runs of ties are sorted on the others.
+     *
+     * @param bh consumes the games.
+     */
+    @Benchmark
+    public void sortMultiKey(Blackhole bh) {
+        new Planner(store).filter("", SortSpec.parse("minPlayers,rating:desc,name"))
+                .forEach(bh::consume);
+    }
+
+    /**
+     * Sorts every game of the catalog on three columns in the common fork-join pool.
+     *
+     * @param bh consumes the games.
+     */
+    @Benchmark
+    public void sortMultiKeyParallel(Blackhole bh) {
+        Planner planner = new Planner(store);
+        planner.setParallelism(Parallelism.common());
+        planner.filter("", SortSpec.parse("minPlayers,rating:desc,name")).forEach(bh::consume);
+    }
+}
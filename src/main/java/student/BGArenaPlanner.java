@@ -1,5 +1,13 @@
 package student;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * Main entry point for the program.
@@ -7,6 +15,18 @@ package student;
 public final class BGArenaPlanner {
     /** default location of collection - relative to the resources directory. */
     private static final String DEFAULT_COLLECTION = "/collection.csv";
+    /** option to load the collection from a csv file on disk instead. */
+    private static final String COLLECTION_OPTION = "--collection";
+    /** option to load the collection from a binary snapshot. */
+    private static final String SNAPSHOT_OPTION = "--snapshot";
+    /** option to save the loaded collection to a binary snapshot and exit. */
+    private static final String SAVE_SNAPSHOT_OPTION = "--save-snapshot";
+    /** flag to filter and sort large collections on all cores. */
+    private static final String PARALLEL_FLAG = "--parallel";
+    /** option to run the commands of a file in batch mode, without prompts. */
+    private static final String SCRIPT_OPTION = "--script";
+    /** option to serve console sessions on a port instead of the terminal. */
+    private static final String LISTEN_OPTION = "--listen";
 
     /** private constructor as static class. */
     private BGArenaPlanner() {
@@ -16,13 +36,94 @@ public final class BGArenaPlanner {
     /**
      * Main entry point for the program.
      * 
-     * @param args command line arguments - not used at this time.
+     * @param args command line arguments - optionally {@code --collection <file>} to load
+     *             the games from a csv file on disk (memory mapped and parsed in parallel),
+     *             {@code --snapshot <file>} to load them from a binary snapshot, and
+     *             {@code --save-snapshot <file>} to save the loaded games to a snapshot and exit,
+     *             {@code --parallel} to filter and sort large collections on all cores,
+     *             {@code --script <file>} to run the commands of a file in batch mode,
+     *             and {@code --listen <port>} to serve a console session to each connection.
      */
     public static void main(String[] args) {
-        IPlanner planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+        GameStore store = loadCollection(args);
+        String snapshot = optionValue(args, SAVE_SNAPSHOT_OPTION);
+        if (snapshot != null) {
+            if (!GamesLoader.saveSnapshot(store, Path.of(snapshot))) {
+                System.exit(1);
+            }
+            return;
+        }
+        Parallelism parallelism = isParallel(args) ? Parallelism.common() : Parallelism.SEQUENTIAL;
+        String listen = optionValue(args, LISTEN_OPTION);
+        if (listen != null) {
+            SessionManager sessions = new SessionManager(new Catalog(store), parallelism,
+                    SessionManager.DEFAULT_IDLE_TIMEOUT);
+            try {
+                int port = sessions.listen(Integer.parseInt(listen));
+                System.out.println("Serving console sessions on port " + port);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        Planner planner = new Catalog(store).newSession();
+        planner.setParallelism(parallelism);
         IGameList list = new GameList();
-        ConsoleApp app = new ConsoleApp(list, planner);
-        app.start();
+        String script = optionValue(args, SCRIPT_OPTION);
+        if (script == null) {
+            new ConsoleApp(list, planner).start();
+            return;
+        }
+        try (Reader commands = Files.newBufferedReader(Path.of(script))) {
+            new ConsoleApp(list, planner, ConsoleApp.DEFAULT_PAGE_SIZE, commands,
+                    new BufferedWriter(new OutputStreamWriter(System.out)), true).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads the collection named by the command line arguments, or the default one.
+     * 
+     * @param args command line arguments.
+     * @return the indexed store of games.
+     */
+    static GameStore loadCollection(String[] args) {
+        String snapshot = optionValue(args, SNAPSHOT_OPTION);
+        if (snapshot != null) {
+            return GamesLoader.loadSnapshot(Path.of(snapshot), true);
+        }
+        String collection = optionValue(args, COLLECTION_OPTION);
+        if (collection != null) {
+            return GamesLoader.loadGameStore(Path.of(collection), true);
+        }
+        return GamesLoader.loadGameStore(DEFAULT_COLLECTION);
+    }
+
+    /**
+     * Check if the command line arguments ask to filter and sort on all cores.
+     * 
+     * @param args command line arguments.
+     * @return true if the parallel flag is given.
+     */
+    static boolean isParallel(String[] args) {
+        return Arrays.asList(args).contains(PARALLEL_FLAG);
+    }
+
+    /**
+     * Finds the value that follows an option in the command line arguments.
+     * 
+     * @param args command line arguments.
+     * @param option the option to look for.
+     * @return the value of the option, or null if it is not given.
+     */
+    static String optionValue(String[] args, String option) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return null;
     }
 
 
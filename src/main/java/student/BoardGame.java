@@ -1,9 +1,6 @@
 package student;
 
-
-import java.util.List;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.Objects;
 
 /**
  * Data Class for the Board Game Object.
@@ -12,6 +9,11 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
  * through getters.
  */
 public class BoardGame {
+    /** Starting value of the hash, the one HashCodeBuilder uses. */
+    private static final int HASH_SEED = 17;
+    /** Multiplier of the hash, the one HashCodeBuilder uses. */
+    private static final int HASH_MULTIPLIER = 37;
+
     /** Name of the board game. */
     private final String name;
     /** Unique identifier of the board game. */
@@ -32,6 +34,8 @@ public class BoardGame {
     private final double averageRating;
     /** Year the game was published. */
     private final int yearPublished;
+    /** Hash of the id and name, computed once. */
+    private final int hash;
 
     /**
      * Constructor for the BoardGame object.
@@ -59,6 +63,8 @@ public class BoardGame {
         this.rank = rank;
         this.averageRating = averageRating;
         this.yearPublished = yearPublished;
+        // same value as the reflection based hash it replaces, so hash based ordering is kept.
+        this.hash = (HASH_SEED * HASH_MULTIPLIER + id) * HASH_MULTIPLIER + Objects.hashCode(name);
     }
 
     /**
@@ -165,28 +171,85 @@ public class BoardGame {
      * @return value of Name (value) pair
      */
     public String toStringWithInfo(GameData col) {
+        if (col == GameData.NAME || col == GameData.ID) {
+            return name;
+        }
+        StringBuilder out = new StringBuilder();
+        appendWithInfo(out, col);
+        return out.toString();
+    }
+
+    /**
+     * Appends the Name (value) pair based on the GameData enum, the same text as
+     * {@link #toStringWithInfo(GameData)} without going through String.format, so long
+     * listings can be written row by row into one buffer.
+     *
+     * @param out the buffer to append to.
+     * @param col GameData enum value
+     */
+    public void appendWithInfo(StringBuilder out, GameData col) {
+        out.append(name);
         switch (col) {
-            case NAME:
-                return name;
             case RATING:
-                return String.format("%s (%.2f)", name, averageRating);
+                appendTwoDecimals(out.append(" ("), averageRating).append(')');
+                break;
             case DIFFICULTY:
-                return String.format("%s (%.2f)", name, difficulty);
+                appendTwoDecimals(out.append(" ("), difficulty).append(')');
+                break;
             case RANK:
-                return String.format("%s (%d)", name, rank);
+                out.append(" (").append(rank).append(')');
+                break;
             case MIN_PLAYERS:
-                return String.format("%s (%d)", name, minPlayers);
+                out.append(" (").append(minPlayers).append(')');
+                break;
             case MAX_PLAYERS:
-                return String.format("%s (%d)", name, maxPlayers);
+                out.append(" (").append(maxPlayers).append(')');
+                break;
             case MIN_TIME:
-                return String.format("%s (%d)", name, minPlayTime);
+                out.append(" (").append(minPlayTime).append(')');
+                break;
             case MAX_TIME:
-                return String.format("%s (%d)", name, maxPlayTime);
+                out.append(" (").append(maxPlayTime).append(')');
+                break;
             case YEAR:
-                return String.format("%s (%d)", name, yearPublished);
+                out.append(" (").append(yearPublished).append(')');
+                break;
             default:
-                return name;
+                break;
+        }
+    }
+
+    /**
+     * Appends a number with two decimals, rounded the way {@code %.2f} rounds it: half up on
+     * the shortest decimal form of the double.
+     *
+     * @param out the buffer to append to.
+     * @param value the number.
+     * @return the buffer.
+     */
+    static StringBuilder appendTwoDecimals(StringBuilder out, double value) {
+        String text = Double.toString(value);
+        int dot = text.indexOf('.');
+        if (dot < 0 || text.indexOf('E') >= 0) {
+            return out.append(String.format("%.2f", value));
+        }
+        int start = 0;
+        if (text.charAt(0) == '-') {
+            out.append('-');
+            start = 1;
+        }
+        long scaled = 0;
+        for (int i = start; i < dot; i++) {
+            scaled = scaled * 10 + (text.charAt(i) - '0');
         }
+        for (int i = dot + 1; i <= dot + 2; i++) {
+            scaled = scaled * 10 + (i < text.length() ? text.charAt(i) - '0' : 0);
+        }
+        if (dot + 3 < text.length() && text.charAt(dot + 3) >= '5') {
+            scaled++;
+        }
+        long cents = scaled % 100;
+        return out.append(scaled / 100).append('.').append(cents < 10 ? "0" : "").append(cents);
     }
 
     /**
@@ -209,14 +272,22 @@ public class BoardGame {
      * - minPlayers - maxPlayers - maxPlayTime - minPlayTime - difficulty - rank - averageRating -
      * yearPublished
      * 
+     * Games from a GameStore are interned, so two equal games from the same store are usually the
+     * same object. Otherwise the cached hashes are compared first, then the id, then the name.
+     * 
      * @param obj object to compare
      * @return true if the objects are equal, false otherwise
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj, // exclude the following fields
-                List.of("minPlayers", "maxPlayers", "maxPlayTime", "minPlayTime", "difficulty",
-                        "rank", "averageRating", "yearPublished"));
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BoardGame)) {
+            return false;
+        }
+        BoardGame other = (BoardGame) obj;
+        return hash == other.hash && id == other.id && Objects.equals(name, other.name);
     }
 
     /**
@@ -229,9 +300,7 @@ public class BoardGame {
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this, // exclude the following fields
-                List.of("minPlayers", "maxPlayers", "maxPlayTime", "minPlayTime", "difficulty",
-                        "rank", "averageRating", "yearPublished"));
+        return hash;
     }
 
 
@@ -0,0 +1,125 @@
+package student;
+
+import java.nio.file.Path;
+
+/**
+ * The catalog of games shared by every session, a GameStore with its indexes and the cache of
+ * sorted results.
+ *
+ * The catalog is safe to share between threads without locking the readers. A store never
+ * changes, so a delta builds a new store and publishes it as the next version of the catalog.
+ * Each version is linked to the one after it with the rows the delta touched, so a session
+ * (a Planner) that holds on to an old version can catch up with the rows that changed, without
+ * running its filter again on the whole catalog. Versions no session holds are collected.
+ */
+public final class Catalog {
+    /** Largest total weight of the result cache, about the number of row IDs kept. */
+    private static final long RESULT_CACHE_WEIGHT = 1L << 23;
+
+    /** The latest version. */
+    private volatile Version current;
+    /** Sorted results of recent queries of every session, keyed with the version. */
+    private final ResultCache resultCache = new ResultCache(RESULT_CACHE_WEIGHT);
+
+    /**
+     * Constructor for the catalog.
+     *
+     * @param store the store that contains all board games.
+     */
+    public Catalog(GameStore store) {
+        this.current = new Version(store, 0, RowSet.empty(store.size()));
+    }
+
+    /**
+     * Starts a session on the catalog, with its own progressive filter.
+     *
+     * @return the planner of the session.
+     */
+    public Planner newSession() {
+        return new Planner(this);
+    }
+
+    /**
+     * Get the latest version of the catalog.
+     *
+     * @return the version.
+     */
+    Version current() {
+        return current;
+    }
+
+    /**
+     * Get the latest store of the catalog.
+     *
+     * @return the store.
+     */
+    public GameStore getStore() {
+        return current.store;
+    }
+
+    /**
+     * Applies a change to the catalog. Sessions see it the next time they run a query.
+     *
+     * @param delta the games to add, replace or remove.
+     */
+    public synchronized void applyDelta(CatalogDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        Version last = current;
+        GameStore.Update update = last.store.applyDelta(delta);
+        Version next = new Version(update.store, last.number + 1, update.touched);
+        last.next = next;
+        current = next;
+        resultCache.clear();
+    }
+
+    /**
+     * Reloads the catalog from a csv file on disk, applying only the differences with the
+     * current catalog.
+     *
+     * @param file the csv file with the whole catalog.
+     * @return the changes that were applied.
+     */
+    public synchronized CatalogDelta reload(Path file) {
+        CatalogDelta delta = GamesLoader.loadDelta(current.store, file);
+        applyDelta(delta);
+        return delta;
+    }
+
+    /**
+     * Get the cache of sorted results, for its hit and miss counters.
+     *
+     * @return the result cache.
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * One version of the catalog, linked to the version after it.
+     */
+    static final class Version {
+        /** The store of this version. */
+        final GameStore store;
+        /** Number of deltas applied before this version. */
+        final long number;
+        /** Rows the delta to this version touched, over this store. */
+        final RowSet touched;
+        /** The version after this one, null while this one is the latest. */
+        volatile Version next;
+
+        /**
+         * Constructor for the version.
+         *
+         * @param store the store of this version.
+         * @param number number of deltas applied before this version.
+         * @param touched rows the delta to this version touched.
+         */
+        Version(GameStore store, long number, RowSet touched) {
+            this.store = store;
+            this.number = number;
+            this.touched = touched;
+        }
+    }
+}
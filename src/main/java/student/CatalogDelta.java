@@ -0,0 +1,197 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A change to the game catalog, keyed by GameData.ID.
+ *
+ * Upserts are games that are added, or that replace the game with the same id. Removed ids are
+ * dropped from the catalog. A delta is applied with Planner.applyDelta, which keeps the current
+ * filter instead of starting over.
+ */
+public final class CatalogDelta {
+    /** Delta with no changes. */
+    public static final CatalogDelta EMPTY = new CatalogDelta(List.of(), List.of());
+
+    /** Games to add or replace, by id. */
+    private final List<BoardGame> upserts;
+    /** Ids of the games to remove. */
+    private final Set<Integer> removedIds;
+
+    /**
+     * Constructor for the delta.
+     *
+     * @param upserts games to add, or to replace the game with the same id. If an id is in the
+     *                list more than once, the last game wins.
+     * @param removedIds ids of the games to remove.
+     * @throws IllegalArgumentException if an id is both upserted and removed.
+     */
+    public CatalogDelta(Collection<BoardGame> upserts, Collection<Integer> removedIds) {
+        this.upserts = List.copyOf(upserts);
+        this.removedIds = Set.copyOf(removedIds);
+        for (BoardGame game : this.upserts) {
+            if (this.removedIds.contains(game.getId())) {
+                throw new IllegalArgumentException("Game " + game.getId() + " is upserted and removed");
+            }
+        }
+    }
+
+    /**
+     * Get the games to add or replace.
+     *
+     * @return unmodifiable list of games.
+     */
+    public List<BoardGame> getUpserts() {
+        return upserts;
+    }
+
+    /**
+     * Get the ids of the games to remove.
+     *
+     * @return unmodifiable set of ids.
+     */
+    public Set<Integer> getRemovedIds() {
+        return removedIds;
+    }
+
+    /**
+     * Check if the delta has no changes.
+     *
+     * @return true if there is nothing to upsert or remove.
+     */
+    public boolean isEmpty() {
+        return upserts.isEmpty() && removedIds.isEmpty();
+    }
+
+    /**
+     * Get the number of changes in the delta.
+     *
+     * @return number of upserts plus number of removed ids.
+     */
+    public int size() {
+        return upserts.size() + removedIds.size();
+    }
+
+    /**
+     * Computes the delta that turns the live games of a store into the games of another one.
+     *
+     * Both stores are sorted on id (a packed long sort, no boxing) and walked together, so the
+     * cost is a sort of each id column plus a compare of the rows with the same id. When an id
+     * is in a store more than once, its first row is the one compared.
+     *
+     * @param current the store to update.
+     * @param latest the store with the new catalog.
+     * @return the games of latest that are new or changed, and the ids that are gone.
+     */
+    public static CatalogDelta diff(GameStore current, GameStore latest) {
+        long[] before = sortedIds(current);
+        long[] after = sortedIds(latest);
+        List<BoardGame> upserts = new ArrayList<>();
+        Set<Integer> removed = new LinkedHashSet<>();
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            int cmp = i == before.length ? 1
+                    : j == after.length ? -1 : Integer.compare(idOf(before[i]), idOf(after[j]));
+            if (cmp < 0) {
+                removed.add(idOf(before[i]));
+                i = skipId(before, i);
+            } else if (cmp > 0) {
+                upserts.add(latest.getGame(rowOf(after[j])));
+                j = skipId(after, j);
+            } else {
+                if (!sameRow(current, rowOf(before[i]), latest, rowOf(after[j]))) {
+                    upserts.add(latest.getGame(rowOf(after[j])));
+                }
+                i = skipId(before, i);
+                j = skipId(after, j);
+            }
+        }
+        return new CatalogDelta(upserts, removed);
+    }
+
+    /**
+     * Packs the id and row of every live row of a store, sorted on id then row.
+     *
+     * @param store the store.
+     * @return the packed (id, row) pairs.
+     */
+    private static long[] sortedIds(GameStore store) {
+        int[] ids = store.intColumn(GameData.ID);
+        int[] rows = store.liveRows().toArray();
+        long[] packed = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            packed[i] = ((long) ids[rows[i]] << Integer.SIZE) | rows[i];
+        }
+        Arrays.parallelSort(packed);
+        return packed;
+    }
+
+    /**
+     * Get the id of a packed pair.
+     *
+     * @param packed the (id, row) pair.
+     * @return the id.
+     */
+    private static int idOf(long packed) {
+        return (int) (packed >> Integer.SIZE);
+    }
+
+    /**
+     * Get the row of a packed pair.
+     *
+     * @param packed the (id, row) pair.
+     * @return the row ID.
+     */
+    private static int rowOf(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Skips the pairs with the same id as the current one.
+     *
+     * @param packed the sorted pairs.
+     * @param from position of the current pair.
+     * @return position of the first pair with another id.
+     */
+    private static int skipId(long[] packed, int from) {
+        int id = idOf(packed[from]);
+        int next = from + 1;
+        while (next < packed.length && idOf(packed[next]) == id) {
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * Check if two rows hold the same game, comparing every column.
+     *
+     * @param a first store.
+     * @param rowA row in the first store.
+     * @param b second store.
+     * @param rowB row in the second store.
+     * @return true if every column is equal.
+     */
+    private static boolean sameRow(GameStore a, int rowA, GameStore b, int rowB) {
+        if (!a.getName(rowA).equals(b.getName(rowB))) {
+            return false;
+        }
+        for (GameData col : GameData.values()) {
+            if (col == GameData.NAME) {
+                continue;
+            }
+            boolean same = GameStore.isDoubleColumn(col)
+                    ? Double.compare(a.doubleColumn(col)[rowA], b.doubleColumn(col)[rowB]) == 0
+                    : a.intColumn(col)[rowA] == b.intColumn(col)[rowB];
+            if (!same) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,359 @@
+package student;
+
+import java.util.Arrays;
+
+/**
+ * Sorted secondary index on one numeric column of a GameStore.
+ *
+ * The index is the row IDs sorted on the column value, ties on the game id then the row ID, so
+ * a range filter is a binary search for each end of the range plus a slice of the array, and
+ * the index is also the sort order of the column with the id as tiebreaker.
+ */
+final class ColumnIndex {
+    /** The indexed column. */
+    private final GameData column;
+    /** Row IDs sorted on the column value. */
+    private final int[] sortedRows;
+    /** Column values when the column is int based, null otherwise. */
+    private final int[] ints;
+    /** Column values when the column is double based, null otherwise. */
+    private final double[] doubles;
+    /** Game id of each row, the tiebreaker. */
+    private final int[] ids;
+    /** Position of the first NaN value, NaN sorts after every number. The length if none. */
+    private final int nanStart;
+
+    /**
+     * Constructor for the index.
+     *
+     * @param column the indexed column.
+     * @param sortedRows row IDs sorted on the column value.
+     * @param ints int column, or null.
+     * @param doubles double column, or null.
+     * @param ids game id of each row.
+     */
+    private ColumnIndex(GameData column, int[] sortedRows, int[] ints, double[] doubles,
+            int[] ids) {
+        this.column = column;
+        this.sortedRows = sortedRows;
+        this.ints = ints;
+        this.doubles = doubles;
+        this.ids = ids;
+        int firstNan = sortedRows.length;
+        if (doubles != null) {
+            while (firstNan > 0 && Double.isNaN(doubles[sortedRows[firstNan - 1]])) {
+                firstNan--;
+            }
+        }
+        this.nanStart = firstNan;
+    }
+
+    /**
+     * Builds the index for a numeric column of the store.
+     *
+     * The rows are sorted on (value, position in the ID index), which is (value, id, row ID),
+     * so the ID index has to be built first and the others take its order.
+     *
+     * @param store the store to index.
+     * @param column the column to index, must not be NAME.
+     * @param byId the ID index of the store, null when building it.
+     * @return the index on the column.
+     */
+    static ColumnIndex build(GameStore store, GameData column, ColumnIndex byId) {
+        int size = store.size();
+        int[] keys;
+        if (GameStore.isDoubleColumn(column)) {
+            double[] doubles = store.doubleColumn(column);
+            // replace each double by its position in the sorted values, so the sort stays on ints.
+            double[] sortedValues = doubles.clone();
+            Arrays.parallelSort(sortedValues);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || Double.compare(sortedValues[distinct - 1], sortedValues[i]) != 0) {
+                    sortedValues[distinct++] = sortedValues[i];
+                }
+            }
+            sortedValues = Arrays.copyOf(sortedValues, distinct);
+            keys = new int[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = Arrays.binarySearch(sortedValues, doubles[row]);
+            }
+        } else {
+            keys = store.intColumn(column);
+        }
+
+        long[] packed = new long[size];
+        if (byId == null) {
+            for (int row = 0; row < size; row++) {
+                packed[row] = ((long) keys[row] << Integer.SIZE) | row;
+            }
+        } else {
+            int[] idOrder = byId.sortedRows;
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) keys[idOrder[i]] << Integer.SIZE) | i;
+            }
+        }
+        Arrays.parallelSort(packed);
+        int[] sortedRows = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedRows[i] = byId == null ? (int) packed[i] : byId.sortedRows[(int) packed[i]];
+        }
+        return of(store, column, sortedRows);
+    }
+
+    /**
+     * Wraps row IDs that are already sorted on a column, from a snapshot for example.
+     *
+     * @param store the indexed store.
+     * @param column the indexed column, must not be NAME.
+     * @param sortedRows row IDs sorted on the column value, ties on the id then the row ID.
+     * @return the index on the column.
+     */
+    static ColumnIndex of(GameStore store, GameData column, int[] sortedRows) {
+        int[] ids = store.intColumn(GameData.ID);
+        if (GameStore.isDoubleColumn(column)) {
+            return new ColumnIndex(column, sortedRows, null, store.doubleColumn(column), ids);
+        }
+        return new ColumnIndex(column, sortedRows, store.intColumn(column), null, ids);
+    }
+
+    /**
+     * Builds the index of a store that was updated from another one. Only the touched rows are
+     * looked at: their old entries are found and their new places are searched for in the
+     * index of the base store, and the runs of rows in between are copied as they are.
+     *
+     * @param base index of the store before the update.
+     * @param store the updated store.
+     * @param touched rows that changed or were added, over the updated store.
+     * @return the index on the same column of the updated store.
+     */
+    static ColumnIndex update(ColumnIndex base, GameStore store, RowSet touched) {
+        GameData column = base.column;
+        int[] ints = GameStore.isDoubleColumn(column) ? null : store.intColumn(column);
+        double[] doubles = ints == null ? store.doubleColumn(column) : null;
+        // a row keeps its id for good, so the new ids also order the rows of the base index.
+        int[] ids = store.intColumn(GameData.ID);
+        int[] rows = touched.toArray();
+        int baseSize = base.sortedRows.length;
+
+        // positions of the old entries, the base index is sorted on the old values.
+        int[] drops = new int[rows.length];
+        int dropCount = 0;
+        for (int row : rows) {
+            if (row < baseSize) {
+                drops[dropCount++] = base.search(base.ints, base.doubles, ids, row);
+            }
+        }
+        Arrays.sort(drops, 0, dropCount);
+
+        // few rows change, so boxing them for the sort is fine.
+        Integer[] fresh = Arrays.stream(rows).boxed().toArray(Integer[]::new);
+        Arrays.sort(fresh, (a, b) -> compareRows(ints, doubles, ids, a, b));
+        int[] inserts = new int[fresh.length];
+        for (int i = 0; i < fresh.length; i++) {
+            inserts[i] = base.search(ints, doubles, ids, fresh[i]);
+        }
+
+        int[] sortedRows = new int[store.size()];
+        int count = 0;
+        int from = 0;
+        int d = 0;
+        int f = 0;
+        while (true) {
+            int nextDrop = d < dropCount ? drops[d] : baseSize;
+            int stop = Math.min(nextDrop, f < fresh.length ? inserts[f] : baseSize);
+            System.arraycopy(base.sortedRows, from, sortedRows, count, stop - from);
+            count += stop - from;
+            from = stop;
+            if (f < fresh.length && inserts[f] == from) {
+                sortedRows[count++] = fresh[f++];
+            } else if (d < dropCount && drops[d] == from) {
+                from++;
+                d++;
+            } else {
+                break;
+            }
+        }
+        return new ColumnIndex(column, sortedRows, ints, doubles, ids);
+    }
+
+    /**
+     * Finds where a row goes in the index, comparing its value in a column that may be newer
+     * than the one the index was sorted on.
+     *
+     * @param rowInts int column holding the value of the row, or null.
+     * @param rowDoubles double column holding the value of the row, or null.
+     * @param rowIds game id of each row.
+     * @param row the row.
+     * @return the first position whose (value, id, row ID) is not less than the row's.
+     */
+    private int search(int[] rowInts, double[] rowDoubles, int[] rowIds, int row) {
+        int low = 0;
+        int high = sortedRows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int other = sortedRows[mid];
+            int cmp = rowInts != null ? Integer.compare(ints[other], rowInts[row])
+                    : Double.compare(doubles[other], rowDoubles[row]);
+            if (cmp == 0) {
+                cmp = Integer.compare(ids[other], rowIds[row]);
+            }
+            if (cmp < 0 || (cmp == 0 && other < row)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares two rows on the column value, the id then the row ID, the order of the index.
+     *
+     * @param ints int column, or null.
+     * @param doubles double column, or null.
+     * @param ids game id of each row.
+     * @param a first row.
+     * @param b second row.
+     * @return negative, zero or positive like any comparator.
+     */
+    private static int compareRows(int[] ints, double[] doubles, int[] ids, int a, int b) {
+        int cmp = ints != null ? Integer.compare(ints[a], ints[b]) : Double.compare(doubles[a], doubles[b]);
+        if (cmp == 0) {
+            cmp = Integer.compare(ids[a], ids[b]);
+        }
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    /**
+     * Get the indexed column.
+     *
+     * @return the column.
+     */
+    GameData getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the row IDs sorted on the column value.
+     *
+     * @return the sorted rows, the array is shared so do not modify it.
+     */
+    int[] getSortedRows() {
+        return sortedRows;
+    }
+
+    /**
+     * Finds the slice of the index that matches a clause.
+     *
+     * A NaN value matches no ordered comparison, the same as the scan of FilterClause, so the
+     * slices stop before the NaN rows at the end of the index, and a NaN clause value matches
+     * nothing.
+     *
+     * @param clause the clause, on the column of this index.
+     * @return {from, to} positions in the index (to is exclusive), or null if the operator
+     *         can not be answered with a single slice.
+     */
+    int[] bounds(FilterClause clause) {
+        Operations operator = clause.getOperator();
+        if (doubles != null && Double.isNaN(clause.getDoubleValue())
+                && operator != Operations.NOT_EQUALS && operator != Operations.CONTAINS) {
+            return new int[] {0, 0};
+        }
+        switch (operator) {
+            case GREATER_THAN:
+                return new int[] {upperBound(clause), nanStart};
+            case GREATER_THAN_EQUALS:
+                return new int[] {lowerBound(clause), nanStart};
+            case LESS_THAN:
+                return new int[] {0, lowerBound(clause)};
+            case LESS_THAN_EQUALS:
+                return new int[] {0, upperBound(clause)};
+            case EQUALS:
+                return new int[] {lowerBound(clause), upperBound(clause)};
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Evaluates a clause with the index, as a bitmap over the whole store.
+     *
+     * @param clause the clause, on the column of this index.
+     * @return the rows that match, or null if the operator can not be answered by the index.
+     */
+    RowSet evaluate(FilterClause clause) {
+        if (clause.getOperator() == Operations.NOT_EQUALS) {
+            // every row, NaN ones included, is not equal to a value it does not match.
+            if (doubles != null && Double.isNaN(clause.getDoubleValue())) {
+                return RowSet.of(sortedRows.length, sortedRows, 0, 0).not();
+            }
+            return RowSet.of(sortedRows.length, sortedRows, lowerBound(clause), upperBound(clause)).not();
+        }
+        int[] bounds = bounds(clause);
+        if (bounds == null) {
+            return null;
+        }
+        return RowSet.of(sortedRows.length, sortedRows, bounds[0], bounds[1]);
+    }
+
+    /**
+     * Get the first position whose value is greater than or equal to the clause value.
+     *
+     * @param clause the clause holding the value.
+     * @return the position.
+     */
+    private int lowerBound(FilterClause clause) {
+        int low = 0;
+        int high = nanStart;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(mid, clause) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the first position whose value is greater than the clause value.
+     *
+     * @param clause the clause holding the value.
+     * @return the position.
+     */
+    private int upperBound(FilterClause clause) {
+        int low = 0;
+        int high = nanStart;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(mid, clause) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the value at a position of the index with the clause value. Only positions
+     * before the NaN rows are compared, and the clause value is not NaN. The comparison is
+     * {@code <} and {@code >} and not Double.compare, so -0.0 and 0.0 are equal as they are in
+     * the scan.
+     *
+     * @param position position in the index.
+     * @param clause the clause holding the value.
+     * @return negative, zero or positive like any comparator.
+     */
+    private int compareAt(int position, FilterClause clause) {
+        int row = sortedRows[position];
+        if (ints != null) {
+            return Integer.compare(ints[row], clause.getIntValue());
+        }
+        double value = doubles[row];
+        double target = clause.getDoubleValue();
+        return value < target ? -1 : (value > target ? 1 : 0);
+    }
+}
@@ -0,0 +1,226 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parsing of console commands and of the positions given to the game list, in one pass over
+ * the characters and without regular expressions.
+ *
+ * Positions are given as ranges separated by commas, each a number or two numbers with a dash
+ * between them, for example {@code 1-5,9,12-20}. Spaces are allowed around the numbers.
+ */
+final class CommandParser {
+    /** Separator between the ranges of a spec. */
+    private static final char RANGE_SEPARATOR = ',';
+    /** Separator between the ends of a range. */
+    private static final char RANGE_DASH = '-';
+
+    /** private constructor as static class. */
+    private CommandParser() {
+
+    }
+
+    /**
+     * Parses a spec of positions.
+     *
+     * @param spec the spec, for example 1-5,9,12-20.
+     * @return the ranges as pairs of first and last position, as typed (1 for the first game),
+     *         a single number being a range of one. Null if the text is not a spec of
+     *         positions, for example a game name.
+     */
+    static int[] parseRanges(CharSequence spec) {
+        int[] ranges = new int[4];
+        int count = 0;
+        int i = skipSpaces(spec, 0);
+        if (i == spec.length()) {
+            return null;
+        }
+        while (true) {
+            long from = 0;
+            int start = i;
+            while (i < spec.length() && isDigit(spec.charAt(i)) && from <= Integer.MAX_VALUE) {
+                from = from * 10 + (spec.charAt(i++) - '0');
+            }
+            if (i == start || from > Integer.MAX_VALUE) {
+                return null;
+            }
+            long to = from;
+            i = skipSpaces(spec, i);
+            if (i < spec.length() && spec.charAt(i) == RANGE_DASH) {
+                i = skipSpaces(spec, i + 1);
+                to = 0;
+                start = i;
+                while (i < spec.length() && isDigit(spec.charAt(i)) && to <= Integer.MAX_VALUE) {
+                    to = to * 10 + (spec.charAt(i++) - '0');
+                }
+                if (i == start || to > Integer.MAX_VALUE) {
+                    return null;
+                }
+                i = skipSpaces(spec, i);
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = (int) from;
+            ranges[count++] = (int) to;
+            if (i == spec.length()) {
+                return count == ranges.length ? ranges : Arrays.copyOf(ranges, count);
+            }
+            if (spec.charAt(i) != RANGE_SEPARATOR) {
+                return null;
+            }
+            i = skipSpaces(spec, i + 1);
+        }
+    }
+
+    /**
+     * Check if a text is a single word, letters, digits and underscores only.
+     *
+     * @param text the text.
+     * @return true if it is a word of at least one character.
+     */
+    static boolean isWord(CharSequence text) {
+        if (text.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || isDigit(c) || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the spaces of a text and puts it in lower case, in one pass.
+     *
+     * @param text the text.
+     * @return the text without spaces, in lower case.
+     */
+    static String compact(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isSpace(c)) {
+                out.append(Character.toLowerCase(c));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Splits a text at each separator with indexOf, as String.split does for one character
+     * but without trimming the empty parts at the end.
+     *
+     * @param text the text.
+     * @param separator the separator.
+     * @return the parts, in order, one part for a text without the separator.
+     */
+    static List<String> split(String text, char separator) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int at = text.indexOf(separator); at >= 0; at = text.indexOf(separator, start)) {
+            parts.add(text.substring(start, at));
+            start = at + 1;
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    /**
+     * Skips the spaces of a text.
+     *
+     * @param text the text.
+     * @param from first position to look at.
+     * @return the position of the first character that is not a space, or the length.
+     */
+    private static int skipSpaces(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && isSpace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Check if a character is an ASCII digit.
+     *
+     * @param c the character.
+     * @return true for 0 to 9.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Check if a character is a space, the same characters as \s in a regular expression.
+     *
+     * @param c the character.
+     * @return true for spaces, tabs and line breaks.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * The words of a command line, read one at a time.
+     */
+    static final class Tokens {
+        /** The line. */
+        private final String line;
+        /** Position of the next character to read. */
+        private int position;
+
+        /**
+         * Constructor for the tokens of a line.
+         *
+         * @param line the command line.
+         */
+        Tokens(String line) {
+            this.line = line;
+            this.position = skipSpaces(line, 0);
+        }
+
+        /**
+         * Check if there is a word left.
+         *
+         * @return true if the rest of the line is not only spaces.
+         */
+        boolean hasNext() {
+            return position < line.length();
+        }
+
+        /**
+         * Reads the next word.
+         *
+         * @return the word, empty if there is none left.
+         */
+        String next() {
+            int start = position;
+            while (position < line.length() && !isSpace(line.charAt(position))) {
+                position++;
+            }
+            String word = line.substring(start, position);
+            position = skipSpaces(line, position);
+            return word;
+        }
+
+        /**
+         * Reads the rest of the line.
+         *
+         * @return the rest, trimmed, empty if there is none left.
+         */
+        String rest() {
+            int end = line.length();
+            while (end > position && isSpace(line.charAt(end - 1))) {
+                end--;
+            }
+            String rest = line.substring(position, end);
+            position = line.length();
+            return rest;
+        }
+    }
+}
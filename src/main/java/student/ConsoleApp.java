@@ -1,10 +1,19 @@
 package student;
 
-import java.util.Collections;
-import java.util.List;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Scanner;
-import java.util.stream.Stream;
 import java.util.Random;
 
 
@@ -15,20 +24,43 @@ import java.util.Random;
  * and for a client to build a list of games they want to play, and
  * save out that list. Most of the features are focused on
  * providing a progressive filter to find games, and then add them to the list.
+ *
+ * The same commands can run from a script in batch mode. The commands are read from a buffered
+ * reader without prompts or welcome text, blank lines and lines starting with # are skipped,
+ * the results go to one buffered writer that is flushed at the end, and the time spent on each
+ * kind of command is reported at the end.
  */
 public class ConsoleApp {
-    /** Interaction with the system terminal/command line. */
-    private static final Scanner IN = new Scanner(System.in);
+    /** Start of a comment line in a script. */
+    private static final String COMMENT = "#";
+    /** Nanoseconds in a millisecond, for the timing report. */
+    private static final double NANOS_PER_MILLI = 1e6;
     /** Default name to save the game list to. */
     private static final String DEFAULT_FILENAME = "games_list.txt";
+    /** Default number of games shown per page of a filter. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
     /** random number generator only needs to be built once. */
     private static final Random RND = new Random();
-    /** scanner to help with processing the command string. */
-    private Scanner current;
+    /** tokens of the command line being processed. */
+    private CommandParser.Tokens current;
     /** The game list to manage. */
     private final IGameList gameList;
     /** The planner to help filter games. */
     private final IPlanner planner;
+    /** Number of games shown per page of a filter. */
+    private final int pageSize;
+    /** Last page of the filter that was shown, null if there is none to continue. */
+    private ResultPage lastPage;
+    /** Column used for the 'extra info' of the pages shown. */
+    private GameData lastSortOn = GameData.NAME;
+    /** Where the commands are read from. */
+    private final BufferedReader input;
+    /** Where the results are written to. */
+    private final PrintWriter output;
+    /** True when reading commands from a script, without prompts. */
+    private final boolean batch;
+    /** Number of commands run and nanoseconds spent on them, per kind of command. */
+    private final Map<ConsoleText, long[]> timings = new EnumMap<>(ConsoleText.class);
 
     /**
      * Constructor for the console app.
@@ -37,19 +69,58 @@ public class ConsoleApp {
      * @param planner  the planner to help filter games.
      */
     public ConsoleApp(IGameList gameList, IPlanner planner) {
+        this(gameList, planner, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Constructor for the console app with a page size.
+     * 
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param pageSize number of games shown per page of a filter, at least 1.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, int pageSize) {
+        this(gameList, planner, pageSize, new InputStreamReader(System.in),
+                new OutputStreamWriter(System.out), false);
+    }
+
+    /**
+     * Constructor for the console app on any input and output, interactive or in batch mode.
+     * 
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param pageSize number of games shown per page of a filter, at least 1.
+     * @param input    where the commands are read from, buffered by the app.
+     * @param output   where the results are written to, buffered by the app.
+     * @param batch    true to run the commands as a script, without prompts and with a
+     *                 timing report at the end.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, int pageSize, Reader input,
+            Writer output, boolean batch) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size " + pageSize);
+        }
         this.gameList = gameList;
         this.planner = planner;
-    }    
+        this.pageSize = pageSize;
+        this.input = new BufferedReader(input);
+        this.output = new PrintWriter(new BufferedWriter(output));
+        this.batch = batch;
+    }
 
     /**
      * Start the console application.
      * 
-     * Processes the main menu commands and redirects.
+     * Processes the main menu commands and redirects, until exit or the end of the input.
      */
     public void start() {
-        printOutput("%s%n", ConsoleText.WELCOME);
+        if (!batch) {
+            printOutput("%s%n", ConsoleText.WELCOME);
+        }
+        long began = System.nanoTime();
         ConsoleText ct = nextCommand();
         while (ct != ConsoleText.CMD_EXIT) {
+            long commandStart = System.nanoTime();
             switch (ct) {
                 case CMD_QUESTION: // same as help
                 case CMD_HELP:
@@ -58,6 +129,10 @@ public class ConsoleApp {
                 case CMD_FILTER:
                     processFilter();
                     break;
+                case CMD_MORE:
+                case CMD_NEXT:
+                    processMore();
+                    break;
                 case CMD_LIST:
                     processListCommands();
                     break;
@@ -68,22 +143,51 @@ public class ConsoleApp {
                 default:
                     printOutput("%s%n", ConsoleText.INVALID);
             }
+            long[] timing = timings.computeIfAbsent(ct, key -> new long[2]);
+            timing[0]++;
+            timing[1] += System.nanoTime() - commandStart;
 
-            // clean up scanner.
-            current.close();
+            // done with the line.
             current = null;
+            if (!batch) {
+                output.flush();
+            }
             // get the next prompt
             ct = nextCommand();
         }
 
-        printOutput("%s%n", ConsoleText.GOODBYE);
+        if (!batch) {
+            printOutput("%s%n", ConsoleText.GOODBYE);
+        }
+        output.flush();
+        if (batch) {
+            printTimings(System.err, System.nanoTime() - began);
+        }
+    }
+
+    /**
+     * Prints the number of commands run and the time spent on them, per kind of command.
+     * 
+     * @param report where to print the report.
+     * @param total nanoseconds spent on the whole run.
+     */
+    private void printTimings(PrintStream report, long total) {
+        long count = 0;
+        for (Map.Entry<ConsoleText, long[]> entry : timings.entrySet()) {
+            long[] timing = entry.getValue();
+            count += timing[0];
+            report.printf("%-8s %8d commands %12.3f ms %10.3f ms avg%n",
+                    entry.getKey().toString(), timing[0], timing[1] / NANOS_PER_MILLI,
+                    timing[1] / NANOS_PER_MILLI / timing[0]);
+        }
+        report.printf("%-8s %8d commands %12.3f ms%n", "total", count, total / NANOS_PER_MILLI);
     }
 
     /**
      * Generate a random number based on the current filter.
      */
     private void randomNumber() {
-        int max = (int) planner.filter("").count();
+        int max = planner.getResult().size();
         if (max > 0) {
             int random = RND.nextInt(max) + 1; // random is 0-(max-1) so add 1.
             printOutput("%s %d%n", ConsoleText.EASTER_EGG, random);
@@ -112,16 +216,14 @@ public class ConsoleApp {
     }
 
     /**
-     * Process the filter command.
+     * Process the filter command, showing the first page of the result.
      */
     private void processFilter() {
-        Stream<BoardGame> result = null;
-        GameData sortON = GameData.NAME; // default
+        String filter = "";
+        SortSpec sort = SortSpec.DEFAULT;
 
         if (current.hasNext()) {
-            String filter = remainder();
-            filter = filter.replaceAll("\\s", ""); // remove spaces
-            filter = filter.toLowerCase(); // make it lower case
+            filter = CommandParser.compact(remainder()); // no spaces, lower case
             if (filter.equalsIgnoreCase(ConsoleText.CMD_QUESTION.toString())) {
                 printOutput("%s%n", ConsoleText.FILTER_HELP);
                 return; // leave early. only doing ? as help could be a game name.
@@ -129,56 +231,64 @@ public class ConsoleApp {
 
             if (filter.equalsIgnoreCase(ConsoleText.CMD_CLEAR.toString())) {
                 planner.reset();
+                lastPage = null;
                 printOutput("%s%n", ConsoleText.FILTERED_CLEAR);
                 return; // leave early.
             }
-            if (filter.contains(ConsoleText.CMD_SORT_OPTION.toString())) {
-                // break it up, figure out sort
-                boolean ascending = true; // default
-                String[] parts = filter.split(ConsoleText.CMD_SORT_OPTION.toString());
-                if (parts.length == 2) {
-                    String sort = parts[1];
-                    if (sort.contains(ConsoleText.CMD_SORT_OPTION_DIRECTION_ASC.toString())) {
-                        ascending = true;
-                        sort = sort.substring(0,
-                                sort.indexOf(ConsoleText.CMD_SORT_OPTION_DIRECTION_ASC.toString()));
-                    } else if (sort
-                            .contains(ConsoleText.CMD_SORT_OPTION_DIRECTION_DESC.toString())) {
-                        ascending = false;
-                        sort = sort.substring(0, sort
-                                .indexOf(ConsoleText.CMD_SORT_OPTION_DIRECTION_DESC.toString()));
-                    }
+            String option = ConsoleText.CMD_SORT_OPTION.toString();
+            int at = filter.indexOf(option);
+            if (at >= 0) {
+                // break it up, figure out sort, e.g. sort:rank,year:desc or sort:ratingdesc
+                String spec = filter.substring(at + option.length());
+                if (!spec.contains(option)) {
                     try {
-                        sortON = GameData.fromString(sort);
+                        sort = SortSpec.parse(spec);
                     } catch (IllegalArgumentException e) {
                         printOutput("%s%n", ConsoleText.INVALID);
                         return; // leave early.
                     }
                 }
-
-                result = planner.filter(parts[0], sortON, ascending);  // NOTICE: sortON and ascending are used here.
-            } else {
-                result = planner.filter(filter); // default sort
+                filter = filter.substring(0, at);
             }
         } else {
             printOutput("%s%n", ConsoleText.NO_FILTER);
-            result = planner.filter("");
         }
-        printFilterStream(result, sortON);
+        lastSortOn = sort.getColumn(0);
+        printPage(planner.filter(planner.compile(filter), sort, 0, pageSize));
+    }
+
+    /**
+     * Process the more command, showing the next page of the last filter.
+     */
+    private void processMore() {
+        if (lastPage == null || !lastPage.hasNext()) {
+            printOutput("%s%n", ConsoleText.NO_MORE_RESULTS);
+            return;
+        }
+        printPage(planner.nextPage(lastPage, pageSize));
     }
 
     /**
-     * Print the filtered stream of games.
+     * Print a page of the filtered games, numbered from the start of the result.
+     * 
+     * The rows are appended to one buffer without String.format and written at once, so the
+     * cost of showing a page does not depend on the size of the result.
      * 
-     * @param games  the stream of games to print.
-     * @param sortON also is the column used for 'extra info' based on the sort
-     *               type.
+     * @param page the page to print.
      */
-    private static void printFilterStream(Stream<BoardGame> games, GameData sortON) {
-        int counter = 1;
-        List<BoardGame> gameList = games != null ? games.toList() : Collections.emptyList();
-        for (BoardGame game : gameList) {
-            printOutput("%d: %s%n", counter++, game.toStringWithInfo(sortON));
+    private void printPage(ResultPage page) {
+        lastPage = page;
+        StringBuilder out = new StringBuilder();
+        int counter = page.getOffset() + 1;
+        for (BoardGame game : page.getGames()) {
+            out.append(counter++).append(": ");
+            game.appendWithInfo(out, lastSortOn);
+            out.append(System.lineSeparator());
+        }
+        output.append(out);
+        if (page.hasNext()) {
+            printOutput(ConsoleText.MORE_RESULTS + "%n", page.getOffset() + 1,
+                    page.getOffset() + page.getGames().size(), page.getTotal());
         }
     }
 
@@ -203,7 +313,7 @@ public class ConsoleApp {
                         break;
                     }
                     try {
-                        gameList.addToList(toAdd, planner.filter(""));
+                        gameList.addToList(toAdd, planner.getResult());
                     } catch (IllegalArgumentException e) {
                         printOutput("%s %s%n", ConsoleText.INVALID_LIST, toAdd);
                     }
@@ -247,7 +357,8 @@ public class ConsoleApp {
         if (gameList.count() > 0) {
             int counter = 1;
             for (String game : gameList.getGameNames()) {
-                printOutput("%d: %s%n", counter++, game);
+                output.append(Integer.toString(counter++)).append(": ").append(game)
+                        .append(System.lineSeparator());
             }
         } else {
             printOutput("%s%n", ConsoleText.NO_GAMES_LIST);
@@ -256,14 +367,20 @@ public class ConsoleApp {
     }
 
     /**
-     * Get the next command from the user.
+     * Get the next command from the user, skipping blank lines, and comments in a script.
      * 
-     * @return the next command.
+     * @return the next command, CMD_EXIT at the end of the input.
      */
     private ConsoleText nextCommand() {
-        if (current == null || !current.hasNext()) {
+        while (current == null || !current.hasNext()) {
             String line = getInput("%s", ConsoleText.PROMPT);
-            current = new Scanner(line.trim()); // now split up the line
+            if (line == null) {
+                return ConsoleText.CMD_EXIT;
+            }
+            if (batch && line.trim().startsWith(COMMENT)) {
+                continue;
+            }
+            current = new CommandParser.Tokens(line); // now split up the line
         }
         return ConsoleText.fromString(current.next()); // get the command
     }
@@ -274,26 +391,27 @@ public class ConsoleApp {
      * @return the remainder of the current line.
      */
     private String remainder() {
-        return current != null && current.hasNext() ? current.nextLine().trim() : "";
+        return current != null ? current.rest() : "";
     }
 
     /** 
-     * Gets input from the client.
+     * Gets input from the client, showing the prompt unless in batch mode.
      * 
      * @param format the format string to print.
      * @param args   the arguments to the format string.
      * 
-     * @return the input from the client as a string, one line at a time.
+     * @return the input from the client as a string, one line at a time, null at the end.
      */
-    private static String getInput(String format, Object... args) {
-        System.out.printf(format, args);
-        if (IN == null) {
-            return "";
+    private String getInput(String format, Object... args) {
+        if (!batch) {
+            output.printf(format, args);
+            output.flush();
         }
-        if (!IN.hasNextLine()) {
-            return "";
+        try {
+            return input.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return IN.nextLine();
     }
 
 
@@ -305,10 +423,10 @@ public class ConsoleApp {
      * 
      * 
      * @param format the format string to print.
-     * @param output the output to print (array to match the format).
+     * @param args the output to print (array to match the format).
      */
-    private static void printOutput(String format, Object... output) {
-        System.out.printf(format, output);
+    private void printOutput(String format, Object... args) {
+        output.printf(format, args);
     }
 
     /**
@@ -328,9 +446,9 @@ public class ConsoleApp {
         /** various commands and text. */
         WELCOME, HELP, INVALID, GOODBYE, PROMPT, NO_FILTER, NO_GAMES_LIST, FILTERED_CLEAR, LIST_HELP, FILTER_HELP,
         /** commands continued. */
-        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG,
+        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG, MORE_RESULTS, NO_MORE_RESULTS,
         /** commands general. */
-        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST,
+        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST, CMD_MORE, CMD_NEXT,
         /** commands specific to lists and filters. */
         CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE,
         /** more options on commands. */
@@ -338,6 +456,8 @@ public class ConsoleApp {
 
         /** load the files on class load. */
         private static final Properties CTEXT = new Properties();
+        /** the values by their text in lower case, built once the text is loaded. */
+        private static final Map<String, ConsoleText> BY_TEXT = new HashMap<>();
 
         /**
          * Get the string representation of the enum.
@@ -361,12 +481,7 @@ public class ConsoleApp {
          * @return the enum value.
          */
         public static ConsoleText fromString(String str) {
-            for (ConsoleText ct : ConsoleText.values()) {
-                if (ct.toString() != null && ct.toString().equalsIgnoreCase(str)) {
-                    return ct;
-                }
-            }
-            return ConsoleText.INVALID;
+            return BY_TEXT.getOrDefault(str.toLowerCase(), ConsoleText.INVALID);
         }
 
         /*
@@ -385,6 +500,11 @@ public class ConsoleApp {
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            for (ConsoleText ct : ConsoleText.values()) {
+                if (ct.toString() != null) {
+                    BY_TEXT.putIfAbsent(ct.toString().toLowerCase(), ct);
+                }
+            }
         }
 
     }
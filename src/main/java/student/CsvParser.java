@@ -0,0 +1,220 @@
+package student;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses the rows of the collection csv file straight from the bytes of the file.
+ *
+ * Each row is tokenized in a single pass, only the fields that map to a GameData column are
+ * looked at, and the numbers are parsed from the bytes without creating a String. The name is
+ * the only String built for a row. Like the rest of the loader, it assumes there are no comma's
+ * in the data.
+ */
+final class CsvParser {
+    /** Standard csv delim. */
+    private static final byte DELIMITER = ',';
+    /** UTF-8 byte order mark, some exports start with it. */
+    private static final String BOM = "\uFEFF";
+    /** Largest power of ten that is exact as a double. */
+    private static final int MAX_EXACT_POW10 = 22;
+    /** Largest mantissa that is exact as a double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    /** Exact powers of ten. */
+    private static final double[] POW10 = new double[MAX_EXACT_POW10 + 1];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    /** GameData ordinal for each field of a row, -1 for fields that are not used. */
+    private final int[] fieldColumns;
+    /** Number of fields a row needs to have all the columns. */
+    private final int fieldsNeeded;
+    /** Start of each column in the current row, by GameData ordinal. */
+    private final int[] starts = new int[GameData.values().length];
+    /** End (exclusive) of each column in the current row, by GameData ordinal. */
+    private final int[] ends = new int[GameData.values().length];
+
+    /**
+     * Builds a parser from the header line.
+     *
+     * It is common to do this for csv files as the columns can be in any order.
+     * This makes it order independent by taking a moment to link the columns
+     * with their actual index in the file.
+     *
+     * @param header the header line
+     * @throws IllegalArgumentException if a GameData column is missing from the header.
+     */
+    CsvParser(String header) {
+        if (header.startsWith(BOM)) {
+            header = header.substring(BOM.length());
+        }
+        String[] fields = header.trim().split(String.valueOf((char) DELIMITER));
+        fieldColumns = new int[fields.length];
+        int[] fieldOf = new int[GameData.values().length];
+        Arrays.fill(fieldOf, -1);
+        for (int i = 0; i < fields.length; i++) {
+            fieldColumns[i] = -1;
+            try {
+                fieldOf[GameData.fromColumnName(fields[i]).ordinal()] = i;
+            } catch (IllegalArgumentException e) {
+                // Ignoring column
+            }
+        }
+        int last = 0;
+        for (GameData col : GameData.values()) {
+            int field = fieldOf[col.ordinal()];
+            if (field < 0) {
+                throw new IllegalArgumentException("Missing column " + col.getColumnName());
+            }
+            // a repeated header keeps the last field, like a map would.
+            fieldColumns[field] = col.ordinal();
+            last = Math.max(last, field);
+        }
+        fieldsNeeded = last + 1;
+    }
+
+    /**
+     * Parses one row and adds it to a builder.
+     *
+     * @param buf the bytes of the file.
+     * @param start start of the row.
+     * @param end end of the row (exclusive), without the line break.
+     * @param out builder to add the row to.
+     * @return true if the row was added, false if it was skipped for missing fields or a value
+     *         that is not a number.
+     */
+    boolean parseRow(ByteBuffer buf, int start, int end, GameStore.Builder out) {
+        int field = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end && field < fieldsNeeded; i++) {
+            if (i == end || buf.get(i) == DELIMITER) {
+                int col = fieldColumns[field];
+                if (col >= 0) {
+                    starts[col] = fieldStart;
+                    ends[col] = i;
+                }
+                field++;
+                fieldStart = i + 1;
+            }
+        }
+        if (field < fieldsNeeded) {
+            return false;
+        }
+
+        try {
+            out.add(text(buf, GameData.NAME),
+                    integer(buf, GameData.ID),
+                    integer(buf, GameData.MIN_PLAYERS),
+                    integer(buf, GameData.MAX_PLAYERS),
+                    integer(buf, GameData.MIN_TIME),
+                    integer(buf, GameData.MAX_TIME),
+                    decimal(buf, GameData.DIFFICULTY),
+                    integer(buf, GameData.RANK),
+                    decimal(buf, GameData.RATING),
+                    integer(buf, GameData.YEAR));
+            return true;
+        } catch (NumberFormatException e) {
+            // skip if there is an issue
+            return false;
+        }
+    }
+
+    /**
+     * Decodes a text field of the current row.
+     *
+     * @param buf the bytes of the file.
+     * @param col the column.
+     * @return the text of the field.
+     */
+    private String text(ByteBuffer buf, GameData col) {
+        int start = starts[col.ordinal()];
+        byte[] bytes = new byte[ends[col.ordinal()] - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an int field of the current row.
+     *
+     * @param buf the bytes of the file.
+     * @param col the column.
+     * @return the value of the field.
+     * @throws NumberFormatException if the field is not a whole number.
+     */
+    private int integer(ByteBuffer buf, GameData col) {
+        int i = starts[col.ordinal()];
+        int end = ends[col.ordinal()];
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Empty number in " + col.getColumnName());
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Not a number in " + col.getColumnName());
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number too large in " + col.getColumnName());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a double field of the current row.
+     *
+     * Plain decimals ([sign]digits[.digits]) that fit in a double exactly are parsed from the
+     * bytes, the result is the same as Double.parseDouble as the division is correctly rounded.
+     * Anything else (exponents, long fractions) goes through Double.parseDouble.
+     *
+     * @param buf the bytes of the file.
+     * @param col the column.
+     * @return the value of the field.
+     * @throws NumberFormatException if the field is not a number.
+     */
+    private double decimal(ByteBuffer buf, GameData col) {
+        int start = starts[col.ordinal()];
+        int end = ends[col.ordinal()];
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (b >= '0' && b <= '9' && mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i == end && digits > 0 && fraction <= MAX_EXACT_POW10) {
+            double value = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text(buf, col));
+    }
+}
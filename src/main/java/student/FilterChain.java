@@ -0,0 +1,114 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A progressive filter that is only evaluated when its rows are needed.
+ *
+ * Each link of the chain is a plan that narrows the filter of the link before it. Narrowing
+ * only adds a link, and evaluating a link applies the clauses of every link since the closest
+ * evaluated one as a single plan to that link's rows. So filters that are narrowed several
+ * times before their results are read are evaluated once, on the rows of the last result, and
+ * the filters in between are never built. A link forgets the links before it once it is
+ * evaluated, so they can be collected.
+ *
+ * A chain is used by one session, it is not safe to evaluate from several threads.
+ */
+final class FilterChain {
+    /** The store the rows belong to. */
+    private final GameStore store;
+    /** The plan this link adds to the link before it, empty for an evaluated link. */
+    private final FilterPlan plan;
+    /** The link before this one, null once this one is evaluated. */
+    private FilterChain parent;
+    /** Rows of the filter, null until evaluated. */
+    private RowSet rows;
+
+    /**
+     * Constructor for a link.
+     *
+     * @param store the store the rows belong to.
+     * @param parent the link before this one, null for an evaluated link.
+     * @param plan the plan this link adds.
+     * @param rows rows of the filter, null if not evaluated yet.
+     */
+    private FilterChain(GameStore store, FilterChain parent, FilterPlan plan, RowSet rows) {
+        this.store = store;
+        this.parent = parent;
+        this.plan = plan;
+        this.rows = rows;
+    }
+
+    /**
+     * Starts a chain from rows that are already known.
+     *
+     * @param store the store the rows belong to.
+     * @param rows rows of the filter.
+     * @return the evaluated link.
+     */
+    static FilterChain of(GameStore store, RowSet rows) {
+        return new FilterChain(store, null, FilterPlan.EMPTY, rows);
+    }
+
+    /**
+     * Narrows the filter with a plan, without evaluating it.
+     *
+     * @param next the plan to add.
+     * @return the new link, or this one if the plan is empty.
+     */
+    FilterChain narrow(FilterPlan next) {
+        return next.isEmpty() ? this : new FilterChain(store, this, next, null);
+    }
+
+    /**
+     * Get the store the rows belong to.
+     *
+     * @return the store.
+     */
+    GameStore getStore() {
+        return store;
+    }
+
+    /**
+     * Check if the rows of the filter are known.
+     *
+     * @return true if the link is evaluated.
+     */
+    boolean isEvaluated() {
+        return rows != null;
+    }
+
+    /**
+     * Sets the rows of the filter when they are found elsewhere, in the result cache.
+     *
+     * @param known rows of the filter.
+     */
+    void setRows(RowSet known) {
+        this.rows = known;
+        this.parent = null;
+    }
+
+    /**
+     * Evaluates the filter, once.
+     *
+     * @param parallelism how to split the work.
+     * @return rows of the filter.
+     */
+    RowSet rows(Parallelism parallelism) {
+        if (rows == null) {
+            List<FilterPlan> plans = new ArrayList<>();
+            FilterChain link = this;
+            while (link.rows == null) {
+                plans.add(link.plan);
+                link = link.parent;
+            }
+            List<FilterClause> clauses = new ArrayList<>();
+            for (int i = plans.size() - 1; i >= 0; i--) {
+                clauses.addAll(plans.get(i).getClauses());
+            }
+            setRows(new FilterPlan(clauses).apply(store, link.rows, parallelism));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,270 @@
+package student;
+
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A single filter clause (column, operator and value) that is already parsed.
+ *
+ * The value is parsed once when the clause is built, and the switch on the column and the
+ * operator runs once when the clause is turned into a predicate, not once per game.
+ */
+public final class FilterClause {
+    /** Column to filter on. */
+    private final GameData column;
+    /** Operator to apply. */
+    private final Operations operator;
+    /** Value as lower case text. */
+    private final String value;
+    /** Value parsed as an int, used by the int columns. */
+    private final int intValue;
+    /** Value parsed as a double, used by the double columns. */
+    private final double doubleValue;
+
+    /**
+     * Builds a clause, parsing the value for the type of the column.
+     *
+     * @param column column to filter on.
+     * @param operator operator to apply.
+     * @param value value to compare with, already lower case.
+     * @throws NumberFormatException if the column is numeric and the value is not a number.
+     */
+    public FilterClause(GameData column, Operations operator, String value) {
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+        if (column == GameData.NAME || column == GameData.ID) {
+            this.intValue = 0;
+            this.doubleValue = 0;
+        } else if (GameStore.isDoubleColumn(column)) {
+            this.intValue = 0;
+            this.doubleValue = Double.parseDouble(value);
+        } else {
+            this.intValue = Integer.parseInt(value);
+            this.doubleValue = intValue;
+        }
+    }
+
+    /**
+     * Get the column of the clause.
+     *
+     * @return the column.
+     */
+    public GameData getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the operator of the clause.
+     *
+     * @return the operator.
+     */
+    public Operations getOperator() {
+        return operator;
+    }
+
+    /**
+     * Get the value of the clause as lower case text.
+     *
+     * @return the value.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Get the value parsed as an int. Only meaningful on int columns.
+     *
+     * @return the int value.
+     */
+    public int getIntValue() {
+        return intValue;
+    }
+
+    /**
+     * Get the value parsed as a double. Only meaningful on numeric columns.
+     *
+     * @return the double value.
+     */
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    /**
+     * Builds a predicate on BoardGame objects for this clause.
+     *
+     * @return predicate that is true for games that match the clause.
+     */
+    public Predicate<BoardGame> toPredicate() {
+        switch (column) {
+            case NAME:
+                Predicate<String> nameTest = compareString(operator, value);
+                return game -> nameTest.test(game.getName().toLowerCase());
+            case ID:
+                // id is not used for filtering.
+                return game -> false;
+            case RATING:
+                DoublePredicate ratingTest = compareDouble(operator, doubleValue);
+                return game -> ratingTest.test(game.getRating());
+            case DIFFICULTY:
+                DoublePredicate difficultyTest = compareDouble(operator, doubleValue);
+                return game -> difficultyTest.test(game.getDifficulty());
+            default:
+                IntPredicate intTest = compareInt(operator, intValue);
+                switch (column) {
+                    case MIN_PLAYERS:
+                        return game -> intTest.test(game.getMinPlayers());
+                    case MAX_PLAYERS:
+                        return game -> intTest.test(game.getMaxPlayers());
+                    case MIN_TIME:
+                        return game -> intTest.test(game.getMinPlayTime());
+                    case MAX_TIME:
+                        return game -> intTest.test(game.getMaxPlayTime());
+                    case RANK:
+                        return game -> intTest.test(game.getRank());
+                    default:
+                        return game -> intTest.test(game.getYearPublished());
+                }
+        }
+    }
+
+    /**
+     * Builds a predicate on the row IDs of a store for this clause, reading the primitive
+     * columns directly.
+     *
+     * @param store the store the row IDs belong to.
+     * @return predicate that is true for rows that match the clause.
+     */
+    public IntPredicate toRowPredicate(GameStore store) {
+        switch (column) {
+            case NAME:
+                Predicate<String> nameTest = compareString(operator, value);
+                String[] lowerNames = store.getLowerNames();
+                boolean[] codeMatches = new boolean[lowerNames.length];
+                for (int code = 0; code < lowerNames.length; code++) {
+                    codeMatches[code] = nameTest.test(lowerNames[code]);
+                }
+                return row -> codeMatches[store.getNameCode(row)];
+            case ID:
+                return row -> false;
+            case RATING:
+            case DIFFICULTY:
+                double[] doubles = store.doubleColumn(column);
+                DoublePredicate doubleTest = compareDouble(operator, doubleValue);
+                return row -> doubleTest.test(doubles[row]);
+            default:
+                int[] ints = store.intColumn(column);
+                IntPredicate intTest = compareInt(operator, intValue);
+                return row -> intTest.test(ints[row]);
+        }
+    }
+
+    /**
+     * Builds the test for an int column.
+     *
+     * @param operator operator to apply.
+     * @param target parsed value to compare with.
+     * @return predicate on the column value.
+     */
+    static IntPredicate compareInt(Operations operator, int target) {
+        switch (operator) {
+            case EQUALS:
+                return x -> x == target;
+            case NOT_EQUALS:
+                return x -> x != target;
+            case GREATER_THAN:
+                return x -> x > target;
+            case LESS_THAN:
+                return x -> x < target;
+            case GREATER_THAN_EQUALS:
+                return x -> x >= target;
+            case LESS_THAN_EQUALS:
+                return x -> x <= target;
+            default:
+                return x -> false;
+        }
+    }
+
+    /**
+     * Builds the test for a double column.
+     *
+     * @param operator operator to apply.
+     * @param target parsed value to compare with.
+     * @return predicate on the column value.
+     */
+    static DoublePredicate compareDouble(Operations operator, double target) {
+        switch (operator) {
+            case EQUALS:
+                return x -> x == target;
+            case NOT_EQUALS:
+                return x -> x != target;
+            case GREATER_THAN:
+                return x -> x > target;
+            case LESS_THAN:
+                return x -> x < target;
+            case GREATER_THAN_EQUALS:
+                return x -> x >= target;
+            case LESS_THAN_EQUALS:
+                return x -> x <= target;
+            default:
+                return x -> false;
+        }
+    }
+
+    /**
+     * Builds the test for the name column, the name passed to the test must be lower case.
+     *
+     * @param operator operator to apply.
+     * @param target lower case value to compare with.
+     * @return predicate on the lower case name.
+     */
+    static Predicate<String> compareString(Operations operator, String target) {
+        switch (operator) {
+            case EQUALS:
+                return target::equals;
+            case NOT_EQUALS:
+                return name -> !name.equals(target);
+            case CONTAINS:
+                return name -> name.contains(target);
+            case GREATER_THAN:
+                return name -> name.compareTo(target) > 0;
+            case LESS_THAN:
+                return name -> name.compareTo(target) < 0;
+            case GREATER_THAN_EQUALS:
+                return name -> name.compareTo(target) >= 0;
+            case LESS_THAN_EQUALS:
+                return name -> name.compareTo(target) <= 0;
+            default:
+                return name -> false;
+        }
+    }
+
+    /**
+     * Get the canonical form of the clause, used as a cache key. Numbers are written from their
+     * parsed value, so minPlayers>=4 and minPlayers>=04 have the same key.
+     *
+     * @return canonical clause.
+     */
+    public String getKey() {
+        String canonical;
+        if (column == GameData.NAME || column == GameData.ID) {
+            canonical = value;
+        } else if (GameStore.isDoubleColumn(column)) {
+            canonical = Double.toString(doubleValue);
+        } else {
+            canonical = Integer.toString(intValue);
+        }
+        return column.getColumnName() + operator.getOperator() + canonical;
+    }
+
+    /**
+     * Get the clause in its normalized text form, e.g. minplayers>=4.
+     *
+     * @return normalized clause.
+     */
+    @Override
+    public String toString() {
+        return column.getColumnName() + operator.getOperator() + value;
+    }
+}
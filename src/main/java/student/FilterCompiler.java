@@ -0,0 +1,73 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles filter strings into FilterPlans.
+ *
+ * Invalid clauses (no operator, unknown column or a value that is not a number on a numeric
+ * column) are ignored. The planner always ignored the first two; a value that is not a number,
+ * such as minplayers>abc, used to throw NumberFormatException when the stream was read, and is
+ * now dropped like the other invalid clauses so one typo does not fail the whole filter.
+ */
+public final class FilterCompiler {
+    /** Separator between the clauses of a filter. */
+    private static final char CLAUSE_SEPARATOR = ',';
+
+    /** private constructor to prevent instantiation. */
+    private FilterCompiler() {
+    }
+
+    /**
+     * Compiles a filter string, clauses are separated by commas.
+     *
+     * @param filter the filter to compile.
+     * @return the compiled plan.
+     */
+    public static FilterPlan compile(String filter) {
+        List<FilterClause> clauses = new ArrayList<>();
+        for (String separatedFilter : CommandParser.split(filter, CLAUSE_SEPARATOR)) {
+            FilterClause clause = compileSingle(separatedFilter.trim());
+            if (clause != null) {
+                clauses.add(clause);
+            }
+        }
+        return clauses.isEmpty() ? FilterPlan.EMPTY : new FilterPlan(clauses);
+    }
+
+    /**
+     * Helper function to compile a single filter.
+     *
+     * @param filter string that contain only one filter.
+     * @return the compiled clause, or null if the filter is not valid.
+     */
+    private static FilterClause compileSingle(String filter) {
+        // Get the operator if exists, otherwise, ignore the filter. e.g. Operation.GREATER_THAN_EQUALS.
+        Operations operator = Operations.getOperatorFromStr(filter);
+        if (operator == null) {
+            return null;
+        }
+
+        // split on the operator with indexOf, a clause has exactly one column and one value.
+        String symbol = operator.getOperator();
+        int at = filter.indexOf(symbol);
+        String value = filter.substring(at + symbol.length());
+        if (value.isEmpty() || value.contains(symbol)) {
+            return null;
+        }
+
+        GameData column;
+        try {
+            column = GameData.fromString(filter.substring(0, at).trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        try {
+            return new FilterClause(column, operator, value.trim().toLowerCase());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
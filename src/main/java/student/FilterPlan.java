@@ -0,0 +1,132 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled filter, the clauses of a filter string that are already parsed.
+ *
+ * Plans are immutable, so they can be built once with IPlanner.compile and passed to
+ * IPlanner.filter as many times as needed. All clauses are ANDed together.
+ */
+public final class FilterPlan {
+    /** Scan only the remaining rows when fewer than 1 in this many rows are left. */
+    private static final int SPARSE_RATIO = 16;
+
+    /** Plan with no clauses, it keeps every game. */
+    public static final FilterPlan EMPTY = new FilterPlan(List.of());
+
+    /** Parsed clauses of the filter. */
+    private final List<FilterClause> clauses;
+
+    /**
+     * Constructor for the plan.
+     *
+     * @param clauses parsed clauses of the filter.
+     */
+    public FilterPlan(List<FilterClause> clauses) {
+        this.clauses = List.copyOf(clauses);
+    }
+
+    /**
+     * Get the clauses of the plan.
+     *
+     * @return unmodifiable list of clauses.
+     */
+    public List<FilterClause> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Check if the plan has no clauses.
+     *
+     * @return true if the plan keeps every game.
+     */
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Builds a predicate on BoardGame objects that matches all clauses.
+     *
+     * @return predicate for the whole plan.
+     */
+    public Predicate<BoardGame> toPredicate() {
+        Predicate<BoardGame> predicate = game -> true;
+        for (FilterClause clause : clauses) {
+            predicate = predicate.and(clause.toPredicate());
+        }
+        return predicate;
+    }
+
+    /**
+     * Keeps the rows that match all clauses.
+     *
+     * Each clause is a bitmap over the whole store, taken from the cache or an index when
+     * possible, and the bitmaps are ANDed with the rows a word at a time. When only a few rows
+     * are left, the remaining clauses are checked on those rows only, with one pass.
+     *
+     * @param store the store the rows belong to.
+     * @param rows rows to check.
+     * @return rows that match all clauses.
+     */
+    public RowSet apply(GameStore store, RowSet rows) {
+        return apply(store, rows, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * Keeps the rows that match all clauses, scanning the clauses that have no bitmap with the
+     * rows cut into chunks that are checked at the same time.
+     *
+     * @param store the store the rows belong to.
+     * @param rows rows to check.
+     * @param parallelism how to split the scans.
+     * @return rows that match all clauses.
+     */
+    public RowSet apply(GameStore store, RowSet rows, Parallelism parallelism) {
+        List<FilterClause> scanned = new ArrayList<>();
+        for (FilterClause clause : clauses) {
+            RowSet bitmap = store.lookupBitmap(clause);
+            if (bitmap == null) {
+                scanned.add(clause);
+            } else {
+                rows = rows.and(bitmap);
+            }
+        }
+        if (scanned.isEmpty()) {
+            return rows;
+        }
+
+        if ((long) rows.cardinality() * SPARSE_RATIO < store.size()) {
+            IntPredicate[] tests = new IntPredicate[scanned.size()];
+            for (int i = 0; i < tests.length; i++) {
+                tests[i] = scanned.get(i).toRowPredicate(store);
+            }
+            return RowSet.select(rows, row -> {
+                for (IntPredicate test : tests) {
+                    if (!test.test(row)) {
+                        return false;
+                    }
+                }
+                return true;
+            }, parallelism);
+        }
+        for (FilterClause clause : scanned) {
+            rows = rows.and(store.scanBitmap(clause, parallelism));
+        }
+        return rows;
+    }
+
+    /**
+     * Get the plan in its normalized text form, clauses separated by commas.
+     *
+     * @return normalized filter.
+     */
+    @Override
+    public String toString() {
+        return clauses.stream().map(FilterClause::toString).collect(Collectors.joining(","));
+    }
+}
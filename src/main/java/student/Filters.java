@@ -2,6 +2,9 @@ package student;
 
 /**
  * Class to filter games.
+ *
+ * The comparisons are the ones of FilterClause, so a game tested here and a row tested by the
+ * planner always agree.
  */
 public final class Filters {
     /** private constructor.*/
@@ -14,34 +17,13 @@ public final class Filters {
      * @param operations operation to be applied on filter.
      * @param value value to be applied on filter.
      * @return whether a game match the conditions.
+     * @throws NumberFormatException if the column is numeric and the value is not a number.
      */
     public static boolean filter(BoardGame game,
                                  GameData column,
                                  Operations operations,
                                  String value) {
-        switch (column) {
-            case NAME:
-                // filter name
-                return filterString(game.getName().toLowerCase(), operations, value);
-            case MAX_PLAYERS:
-                return filterNum(game.getMaxPlayers(), operations, value);
-            case MIN_PLAYERS:
-                return filterNum(game.getMinPlayers(), operations, value);
-            case MAX_TIME:
-                return filterNum(game.getMaxPlayTime(), operations, value);
-            case MIN_TIME:
-                return filterNum(game.getMinPlayTime(), operations, value);
-            case RANK:
-                return filterNum(game.getRank(), operations, value);
-            case RATING:
-                return filterDouble(game.getRating(), operations, value);
-            case DIFFICULTY:
-                return filterDouble(game.getDifficulty(), operations, value);
-            case YEAR:
-                return filterNum(game.getYearPublished(), operations, value);
-            default:
-                return false;
-        }
+        return new FilterClause(column, operations, value).toPredicate().test(game);
     }
 
     /**
@@ -52,24 +34,7 @@ public final class Filters {
      * @return whether a game data match the conditions.
      */
     public static boolean filterString(String gameData, Operations operations, String value) {
-        switch (operations) {
-            case EQUALS:
-                return gameData.equals(value);
-            case NOT_EQUALS:
-                return !gameData.equals(value);
-            case CONTAINS:
-                return gameData.contains(value);
-            case GREATER_THAN:
-                return gameData.compareTo(value) > 0;
-            case LESS_THAN:
-                return gameData.compareTo(value) < 0;
-            case GREATER_THAN_EQUALS:
-                return gameData.compareTo(value) >= 0;
-            case LESS_THAN_EQUALS:
-                return gameData.compareTo(value) <= 0;
-            default:
-                return false;
-        }
+        return FilterClause.compareString(operations, value).test(gameData);
     }
 
     /**
@@ -79,25 +44,8 @@ public final class Filters {
      * @param value value to be applied on filter.
      * @return whether a game data match the conditions.
      */
-
     public static boolean filterNum(int gameData, Operations operations, String value) {
-        int intValue = Integer.parseInt(value);
-        switch (operations) {
-            case EQUALS:
-                return gameData == intValue;
-            case NOT_EQUALS:
-                return gameData != intValue;
-            case GREATER_THAN:
-                return gameData > intValue;
-            case LESS_THAN:
-                return gameData < intValue;
-            case GREATER_THAN_EQUALS:
-                return gameData >= intValue;
-            case LESS_THAN_EQUALS:
-                return gameData <= intValue;
-            default:
-                return false;
-        }
+        return FilterClause.compareInt(operations, Integer.parseInt(value)).test(gameData);
     }
 
     /**
@@ -108,22 +56,6 @@ public final class Filters {
      * @return whether a game data match the conditions.
      */
     public static boolean filterDouble(double gameData, Operations operations, String value) {
-        double doubleValue = Double.parseDouble(value);
-        switch (operations) {
-            case EQUALS:
-                return gameData == doubleValue;
-            case NOT_EQUALS:
-                return gameData != doubleValue;
-            case GREATER_THAN:
-                return gameData > doubleValue;
-            case LESS_THAN:
-                return gameData < doubleValue;
-            case GREATER_THAN_EQUALS:
-                return gameData >= doubleValue;
-            case LESS_THAN_EQUALS:
-                return gameData <= doubleValue;
-            default:
-                return false;
-        }
+        return FilterClause.compareDouble(operations, Double.parseDouble(value)).test(gameData);
     }
 }
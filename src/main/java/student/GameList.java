@@ -3,39 +3,54 @@ package student;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
  * Class that store the game list that user want to play.
+ *
+ * The names are kept sorted case insensitive (the order of the name dictionary of the store),
+ * in an array list so the game at a position is found in O(1), with a hash set of the same names
+ * so membership is O(1) too. Adding games merges the sorted new names into the list in one pass,
+ * and removing a range of positions is one shift of the array, so long lists are never copied
+ * name by name.
  */
 public class GameList implements IGameList {
-    /** List of games that user intend to play.*/
-    private Set<String> listOfGames;
+    /** Names of the games that user intend to play, sorted.*/
+    private final ArrayList<String> names = new ArrayList<>();
+    /** The same names, for membership.*/
+    private final Set<String> members = new HashSet<>();
 
     /**
      * Constructor for the GameList.
      * The game list that user intend to play is instantiated as empty list.
      */
     public GameList() {
-        this.listOfGames = new HashSet<>();
     }
 
     /**
      * get the games names in the list.
-     * @return games names in the list.
+     * @return read only view of the games names in the list, sorted case insensitive. The view
+     * follows the changes of the list.
      */
     @Override
     public List<String> getGameNames() {
-        return List.copyOf(this.listOfGames);
+        return Collections.unmodifiableList(names);
     }
 
     /**
-     * Reset the game list to empty set.
+     * Reset the game list to empty.
      */
     @Override
     public void clear() {
-        this.listOfGames = new HashSet<>();
+        names.clear();
+        members.clear();
     }
 
     /**
@@ -44,7 +59,7 @@ public class GameList implements IGameList {
      */
     @Override
     public int count() {
-        return this.listOfGames.size();
+        return names.size();
     }
 
     /**
@@ -54,7 +69,7 @@ public class GameList implements IGameList {
     @Override
     public void saveGame(String filename) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            for (String element : this.listOfGames) {
+            for (String element : names) {
                 writer.write(element);
                 writer.newLine();
             }
@@ -72,45 +87,40 @@ public class GameList implements IGameList {
      */
     @Override
     public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
-        List<BoardGame> filteredList = filtered.toList();
+        addToList(str, filtered.toList());
+    }
 
+    /**
+     * Add a game to the game list by name, index, or scope of index, reading the games of the
+     * filter by position. Several scopes can be given separated by commas (1-5,9,12-20), and
+     * they are checked before any game is added.
+     * @param str      the string to parse and add games to the list.
+     * @param filteredList the filtered list to use as a basis for adding.
+     * @throws IllegalArgumentException the scope of number or a number beyond the index of game or
+     * the game name passed in not in the list.
+     */
+    @Override
+    public void addToList(String str, List<BoardGame> filteredList)
+            throws IllegalArgumentException {
         if (str.equals(ADD_ALL)) {
-            for (BoardGame game: filteredList) {
-                listOfGames.add(game.getName());
-            }
+            addAll(filteredList, new int[] {1, filteredList.size()});
             return;
         }
 
-        if (containNumberScope(str)) {
-            str = str.replaceAll(" ", "");
-            String[] numbers = str.split("-");
-            int startIndex = Integer.parseInt(numbers[0]) - 1;
-            int endIndex = Integer.parseInt(numbers[1]);
-
-            if (numbers.length != 2) {
-                throw new IllegalArgumentException("More Than one set of numbers passed in.");
-            } else if (startIndex > filteredList.size()
-                    || endIndex > filteredList.size()
-                    || startIndex < 0
-                    || endIndex < 0
-                    || startIndex > Integer.parseInt(numbers[1])) {
-                throw new IllegalArgumentException("Number out of range.");
-            }
-
-            for (int i = startIndex; i < endIndex; i++) {
-                BoardGame toAdd = filteredList.get(i);
-                listOfGames.add(toAdd.getName());
-            }
-
-        } else if (containOneNumber(str)) {
-            if (Integer.parseInt(str) < 1 || Integer.parseInt(str) > filteredList.size()) {
-                throw new IllegalArgumentException("Number out of range.");
+        int[] ranges = CommandParser.parseRanges(str);
+        if (ranges != null) {
+            for (int r = 0; r < ranges.length; r += 2) {
+                // a range can be empty (3-2), but not start past the end of the filter.
+                if (ranges[r] < 1 || ranges[r + 1] > filteredList.size()
+                        || ranges[r] > ranges[r + 1] + 1) {
+                    throw new IllegalArgumentException("Number out of range.");
+                }
             }
-            listOfGames.add(filteredList.get(Integer.parseInt(str) - 1).getName());
-        } else if (containStringOnly(str)) {
-            for (BoardGame game: filteredList) {
-                if (game.getName().equals(str)) {
-                    listOfGames.add(game.getName());
+            addAll(filteredList, ranges);
+        } else if (CommandParser.isWord(str)) {
+            for (int i = 0; i < filteredList.size(); i++) {
+                if (filteredList.get(i).getName().equals(str)) {
+                    addAll(filteredList, new int[] {i + 1, i + 1});
                     return;
                 }
             }
@@ -121,7 +131,49 @@ public class GameList implements IGameList {
     }
 
     /**
-     * Remove a game from the game list by name, index, or scope of index.
+     * Adds the games of ranges of positions of a filtered list. The names that are not in the
+     * list yet are sorted, then merged with the names of the list in one pass.
+     * @param filteredList the filtered list.
+     * @param ranges pairs of first and last position, from 1, inclusive.
+     */
+    private void addAll(List<BoardGame> filteredList, int[] ranges) {
+        List<String> added = new ArrayList<>();
+        for (int r = 0; r < ranges.length; r += 2) {
+            for (int i = ranges[r] - 1; i < ranges[r + 1]; i++) {
+                String name = filteredList.get(i).getName();
+                if (members.add(name)) {
+                    added.add(name);
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        if (added.size() == 1) {
+            int index = Collections.binarySearch(names, added.get(0), GameStore::compareNames);
+            names.add(-index - 1, added.get(0));
+            return;
+        }
+        added.sort(GameStore::compareNames);
+        String[] merged = new String[names.size() + added.size()];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j >= added.size()
+                    || i < names.size() && GameStore.compareNames(names.get(i), added.get(j)) < 0) {
+                merged[k] = names.get(i++);
+            } else {
+                merged[k] = added.get(j++);
+            }
+        }
+        names.clear();
+        names.addAll(Arrays.asList(merged));
+    }
+
+    /**
+     * Remove a game from the game list by name, index, or scope of index. Several scopes can be
+     * given separated by commas (1-5,9,12-20), all of them are positions in the list as it was
+     * before the remove.
      * @param str The string to parse and remove games from the list.
      * @throws IllegalArgumentException the scope of number or a number beyond the index of game or
      * the game name passed in not in the list.
@@ -133,67 +185,59 @@ public class GameList implements IGameList {
             return;
         }
 
-        List<String> gameList = new ArrayList<>(listOfGames);
-
-        if (containNumberScope(str)) {
-            str = str.replaceAll(" ", "");
-            String[] numbers = str.split("-");
-            if (numbers.length != 2) {
-                throw new IllegalArgumentException("More than one set of numbers passed in.");
-            }
-
-            int startIndex = Integer.parseInt(numbers[0]) - 1;
-            int endIndex = Integer.parseInt(numbers[1]);
-
-            if (startIndex < 0 || endIndex > gameList.size() || startIndex >= endIndex) {
-                throw new IllegalArgumentException("Number out of range.");
-            }
-
-            for (int i = startIndex; i < endIndex; i++) {
-                listOfGames.remove(gameList.get(i));
+        int[] ranges = CommandParser.parseRanges(str);
+        if (ranges != null) {
+            for (int r = 0; r < ranges.length; r += 2) {
+                if (ranges[r] < 1 || ranges[r + 1] > names.size() || ranges[r] > ranges[r + 1]) {
+                    throw new IllegalArgumentException("Number out of range.");
+                }
             }
-
-        } else if (containOneNumber(str)) {
-            int index = Integer.parseInt(str) - 1;
-            if (index < 0 || index >= gameList.size()) {
-                throw new IllegalArgumentException("Number out of range.");
+            if (ranges.length == 2) {
+                removeRange(ranges[0] - 1, ranges[1]);
+            } else {
+                removeRanges(ranges);
             }
-            listOfGames.remove(gameList.get(index));
-
-        } else if (containStringOnly(str)) {
-            if (!listOfGames.remove(str)) {
+        } else if (CommandParser.isWord(str)) {
+            if (!members.remove(str)) {
                 throw new IllegalArgumentException("Game not found.");
             }
+            names.remove(Collections.binarySearch(names, str, GameStore::compareNames));
         } else {
             throw new IllegalArgumentException("Invalid input.");
         }
     }
 
     /**
-     * Helper function to check if a string contains number scope.
-     * @param str string to check.
-     * @return whether the string contains number scope.
-     */
-    private boolean containNumberScope(String str) {
-        return str.matches("\\d+-\\d+");
-    }
-
-    /**
-     * Helper function to check if a string contains only a number.
-     * @param str string to check.
-     * @return whether the string contains only a number.
+     * Removes a range of positions of the list, with one shift of the array.
+     * @param from first position, inclusive.
+     * @param to last position, exclusive.
      */
-    private boolean containOneNumber(String str) {
-        return str.matches("\\d+");
+    private void removeRange(int from, int to) {
+        List<String> removed = names.subList(from, to);
+        for (String name : removed) {
+            members.remove(name);
+        }
+        removed.clear();
     }
 
     /**
-     * Helper function to check if a string contains only alphabets.
-     * @param str string to check.
-     * @return whether the string contains only alphabets.
+     * Removes several ranges of positions of the list, that may overlap, by moving the names
+     * that are kept to the front in one pass.
+     * @param ranges pairs of first and last position, from 1, inclusive.
      */
-    private boolean containStringOnly(String str) {
-        return str.matches("\\w+");
+    private void removeRanges(int[] ranges) {
+        BitSet removed = new BitSet(names.size());
+        for (int r = 0; r < ranges.length; r += 2) {
+            removed.set(ranges[r] - 1, ranges[r + 1]);
+        }
+        int kept = 0;
+        for (int i = 0; i < names.size(); i++) {
+            if (removed.get(i)) {
+                members.remove(names.get(i));
+            } else {
+                names.set(kept++, names.get(i));
+            }
+        }
+        names.subList(kept, names.size()).clear();
     }
-
 }
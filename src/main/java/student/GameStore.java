@@ -0,0 +1,971 @@
+package student;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Columnar, in-memory store for the board game collection.
+ *
+ * Every numeric column in GameData is kept in its own primitive array, indexed by row ID, and
+ * the names are kept in a dictionary of distinct names (sorted case insensitive) with one code
+ * per row. Filtering and sorting work on the row IDs and the columns directly, BoardGame objects
+ * are only built again when the results are materialized.
+ *
+ * A store never changes. A CatalogDelta is applied by building a new store that shares what it
+ * can with the old one: rows keep their row ID, removed rows stay behind as dead rows (outside
+ * of liveRows) and added rows are appended.
+ *
+ * The row ID is also the identity of a game: the store interns one BoardGame per row, so the
+ * games it hands out for a row are the same object and compare with ==.
+ */
+public final class GameStore {
+    /** Number of clause bitmaps kept in the cache. */
+    private static final int BITMAP_CACHE_SIZE = 64;
+    /** Words in the bit filter on ids used to find the rows of a delta, a power of two. */
+    private static final int ID_FILTER_WORDS = 1 << 10;
+
+    /** Number of rows in the store, dead rows included. */
+    private final int size;
+    /** Rows that hold a game of the catalog, the others were removed by a delta. */
+    private final RowSet liveRows;
+    /** Distinct names, sorted case insensitive. */
+    private final String[] nameDictionary;
+    /** Lower case form of each name in the dictionary, by name code. */
+    private final String[] lowerNames;
+    /** Index into the name dictionary for each row. */
+    private final int[] nameCodes;
+    /** Int columns by GameData ordinal, null for the other columns. */
+    private final int[][] intColumns;
+    /** Double columns by GameData ordinal, null for the other columns. */
+    private final double[][] doubleColumns;
+    /** Sorted indexes on the numeric columns, by GameData ordinal, null if not indexed. */
+    private final ColumnIndex[] indexes;
+    /** Trigram index on the names, null if not indexed. */
+    private final NameIndex nameIndex;
+    /** Row IDs sorted on the name code (ties on the id then row ID), null if not indexed. */
+    private final int[] nameOrder;
+    /** Interned game of each row, built on first use. */
+    private final BoardGame[] games;
+    /** Bitmaps of the most recently used clauses, keyed by the canonical clause. */
+    private final Map<String, CachedBitmap> bitmapCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedBitmap> eldest) {
+            return size() > BITMAP_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Builds the columns from a collection of board games.
+     *
+     * @param games the games to store, row IDs follow the iteration order of the collection.
+     */
+    public GameStore(Collection<BoardGame> games) {
+        this(games, false);
+    }
+
+    /**
+     * Builds the columns from a collection of board games, and optionally the sorted indexes on
+     * the numeric columns used to answer range filters.
+     *
+     * @param games the games to store, row IDs follow the iteration order of the collection.
+     * @param indexed whether to build the sorted indexes.
+     */
+    public GameStore(Collection<BoardGame> games, boolean indexed) {
+        this(Builder.of(games).toColumns(), indexed);
+    }
+
+    /**
+     * Builds the store from its columns. Indexes that are missing from the columns are built
+     * if the store is indexed.
+     *
+     * @param columns the columns, owned by the store from now on.
+     * @param indexed whether to build the sorted indexes.
+     */
+    GameStore(Columns columns, boolean indexed) {
+        this.nameDictionary = columns.dictionary;
+        this.nameCodes = columns.nameCodes;
+        this.size = nameCodes.length;
+        this.liveRows = RowSet.all(size);
+        this.games = new BoardGame[size];
+        this.intColumns = columns.ints;
+        this.doubleColumns = columns.doubles;
+
+        this.lowerNames = new String[nameDictionary.length];
+        for (int code = 0; code < lowerNames.length; code++) {
+            lowerNames[code] = nameDictionary[code].toLowerCase();
+        }
+
+        this.indexes = new ColumnIndex[GameData.values().length];
+        if (indexed) {
+            // ties are broken on the id, so the ID index comes first, then the others are
+            // independent and built at the same time.
+            int[] idRows = columns.sortedRows[GameData.ID.ordinal()];
+            ColumnIndex byId = idRows != null ? ColumnIndex.of(this, GameData.ID, idRows)
+                    : ColumnIndex.build(this, GameData.ID, null);
+            indexes[GameData.ID.ordinal()] = byId;
+            Arrays.stream(GameData.values()).parallel()
+                    .filter(col -> col != GameData.NAME && col != GameData.ID)
+                    .forEach(col -> indexes[col.ordinal()] = columns.sortedRows[col.ordinal()] != null
+                            ? ColumnIndex.of(this, col, columns.sortedRows[col.ordinal()])
+                            : ColumnIndex.build(this, col, byId));
+        }
+        this.nameIndex = indexed ? new NameIndex(this, lowerNames) : null;
+        this.nameOrder = indexed ? sortByName(nameCodes, nameDictionary.length, byIdRows()) : null;
+    }
+
+    /**
+     * Builds a store updated from another one. The indexes are merged from the ones of the base
+     * store, and the cached bitmaps are carried over with only the touched rows checked again.
+     *
+     * @param base the store before the update.
+     * @param columns the updated columns.
+     * @param liveRows rows that hold a game after the update.
+     * @param touched rows that changed, were added or were removed.
+     * @param codeRemap new code of each name code of the base store, or null if the name
+     *                  dictionary did not change.
+     */
+    private GameStore(GameStore base, Columns columns, RowSet liveRows, RowSet touched,
+            int[] codeRemap) {
+        this.nameDictionary = columns.dictionary;
+        this.nameCodes = columns.nameCodes;
+        this.size = nameCodes.length;
+        this.liveRows = liveRows;
+        this.intColumns = columns.ints;
+        this.games = Arrays.copyOf(base.games, size);
+        for (int row = touched.nextRow(0); row >= 0; row = touched.nextRow(row + 1)) {
+            games[row] = null;
+        }
+        this.doubleColumns = columns.doubles;
+
+        if (codeRemap == null) {
+            this.lowerNames = base.lowerNames;
+        } else {
+            this.lowerNames = new String[nameDictionary.length];
+            for (int code = 0; code < codeRemap.length; code++) {
+                lowerNames[codeRemap[code]] = base.lowerNames[code];
+            }
+            for (int code = 0; code < lowerNames.length; code++) {
+                if (lowerNames[code] == null) {
+                    lowerNames[code] = nameDictionary[code].toLowerCase();
+                }
+            }
+        }
+
+        this.indexes = new ColumnIndex[GameData.values().length];
+        Arrays.stream(base.indexes).parallel()
+                .filter(index -> index != null)
+                .forEach(index -> indexes[index.getColumn().ordinal()] =
+                        ColumnIndex.update(index, this, touched));
+        this.nameIndex = base.nameIndex == null ? null
+                : NameIndex.update(base.nameIndex, this, lowerNames, codeRemap);
+        // a counting sort is linear, so the name order is built again instead of merged.
+        this.nameOrder = base.nameOrder == null ? null
+                : sortByName(nameCodes, nameDictionary.length, byIdRows());
+
+        List<CachedBitmap> cached;
+        synchronized (base.bitmapCache) {
+            cached = new ArrayList<>(base.bitmapCache.values());
+        }
+        for (CachedBitmap entry : cached) {
+            RowSet rows = entry.rows.resize(size).andNot(touched)
+                    .or(RowSet.select(touched, entry.clause.toRowPredicate(this)));
+            bitmapCache.put(entry.clause.getKey(), new CachedBitmap(entry.clause, rows));
+        }
+    }
+
+    /**
+     * Finds the rows that repeat the id and name of an earlier row.
+     *
+     * @param ids id column.
+     * @param codes name code column.
+     * @param count number of rows.
+     * @return flags for the rows to drop, or null if there are no duplicates.
+     */
+    private static boolean[] findDuplicates(int[] ids, int[] codes, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) ids[i] << Integer.SIZE) | codes[i];
+        }
+        long[] sorted = keys.clone();
+        Arrays.parallelSort(sorted);
+        boolean any = false;
+        for (int i = 1; i < count && !any; i++) {
+            any = sorted[i] == sorted[i - 1];
+        }
+        if (!any) {
+            return null;
+        }
+        // rare, so the boxing is fine here.
+        Set<Long> seen = new HashSet<>();
+        boolean[] dropped = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            dropped[i] = !seen.add(keys[i]);
+        }
+        return dropped;
+    }
+
+    /**
+     * Copies the rows of an int column that are kept.
+     *
+     * @param column the column.
+     * @param count number of rows in the column.
+     * @param dropped flags for the rows to drop, or null to keep all.
+     * @return the column with exactly the kept rows.
+     */
+    private static int[] compact(int[] column, int count, boolean[] dropped) {
+        if (dropped == null) {
+            return Arrays.copyOf(column, count);
+        }
+        int[] result = new int[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (!dropped[i]) {
+                result[kept++] = column[i];
+            }
+        }
+        return Arrays.copyOf(result, kept);
+    }
+
+    /**
+     * Copies the rows of a double column that are kept.
+     *
+     * @param column the column.
+     * @param count number of rows in the column.
+     * @param dropped flags for the rows to drop, or null to keep all.
+     * @return the column with exactly the kept rows.
+     */
+    private static double[] compact(double[] column, int count, boolean[] dropped) {
+        if (dropped == null) {
+            return Arrays.copyOf(column, count);
+        }
+        double[] result = new double[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (!dropped[i]) {
+                result[kept++] = column[i];
+            }
+        }
+        return Arrays.copyOf(result, kept);
+    }
+
+    /**
+     * Sorts and de-duplicates the names.
+     *
+     * @param names names for every row.
+     * @return the distinct names in case insensitive order.
+     */
+    private static String[] buildDictionary(String[] names) {
+        String[] sorted = names.clone();
+        Arrays.parallelSort(sorted, GameStore::compareNames);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || !sorted[distinct - 1].equals(sorted[i])) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * Order used by the name dictionary, case insensitive first so codes can be compared
+     * directly when sorting on name.
+     *
+     * @param a first name.
+     * @param b second name.
+     * @return negative, zero or positive like any comparator.
+     */
+    static int compareNames(String a, String b) {
+        int cmp = String.CASE_INSENSITIVE_ORDER.compare(a, b);
+        return cmp != 0 ? cmp : a.compareTo(b);
+    }
+
+    /**
+     * Get the number of rows in the store.
+     *
+     * @return number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the rows that hold a game of the catalog. Every row is live until a delta removes
+     * some.
+     *
+     * @return the live rows.
+     */
+    public RowSet liveRows() {
+        return liveRows;
+    }
+
+    /**
+     * Get the name of the game in a row.
+     *
+     * @param row the row ID.
+     * @return the name of the game.
+     */
+    public String getName(int row) {
+        return nameDictionary[nameCodes[row]];
+    }
+
+    /**
+     * Get the dictionary code of the name in a row. Codes follow the case insensitive order of
+     * the names.
+     *
+     * @param row the row ID.
+     * @return the name code.
+     */
+    int getNameCode(int row) {
+        return nameCodes[row];
+    }
+
+    /**
+     * Get the name codes of all rows.
+     *
+     * @return the name codes indexed by row ID, the array is shared so do not modify it.
+     */
+    int[] nameCodeColumn() {
+        return nameCodes;
+    }
+
+    /**
+     * Get the name dictionary, indexed by name code.
+     *
+     * @return the distinct names, the array is shared so do not modify it.
+     */
+    String[] getNameDictionary() {
+        return nameDictionary;
+    }
+
+    /**
+     * Get the lower case names, indexed by name code.
+     *
+     * @return the lower case names, the array is shared so do not modify it.
+     */
+    String[] getLowerNames() {
+        return lowerNames;
+    }
+
+    /**
+     * Check if a column is stored as doubles instead of ints.
+     *
+     * @param col the column.
+     * @return true for RATING and DIFFICULTY.
+     */
+    public static boolean isDoubleColumn(GameData col) {
+        return col == GameData.RATING || col == GameData.DIFFICULTY;
+    }
+
+    /**
+     * Get the backing array of an int column.
+     *
+     * @param col the column, must not be NAME or a double column.
+     * @return the column indexed by row ID, the array is shared so do not modify it.
+     */
+    int[] intColumn(GameData col) {
+        int[] column = intColumns[col.ordinal()];
+        if (column == null) {
+            throw new IllegalArgumentException("Not an int column " + col);
+        }
+        return column;
+    }
+
+    /**
+     * Get the backing array of a double column.
+     *
+     * @param col the column, RATING or DIFFICULTY.
+     * @return the column indexed by row ID, the array is shared so do not modify it.
+     */
+    double[] doubleColumn(GameData col) {
+        double[] column = doubleColumns[col.ordinal()];
+        if (column == null) {
+            throw new IllegalArgumentException("Not a double column " + col);
+        }
+        return column;
+    }
+
+    /**
+     * Check if the store was built with its indexes.
+     *
+     * @return true if the sorted indexes are built.
+     */
+    public boolean isIndexed() {
+        return nameIndex != null;
+    }
+
+    /**
+     * Get the columns of the store, sharing the arrays (which are never modified).
+     *
+     * @return the columns, with the sorted rows of the indexes if the store is indexed.
+     */
+    Columns toColumns() {
+        Columns columns = new Columns(nameDictionary, nameCodes);
+        System.arraycopy(intColumns, 0, columns.ints, 0, intColumns.length);
+        System.arraycopy(doubleColumns, 0, columns.doubles, 0, doubleColumns.length);
+        for (ColumnIndex index : indexes) {
+            if (index != null) {
+                columns.sortedRows[index.getColumn().ordinal()] = index.getSortedRows();
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Sorts the rows on their name code with a counting sort, codes follow the name order.
+     *
+     * @param nameCodes the name code of each row.
+     * @param codeCount number of codes in the dictionary.
+     * @param idOrder row IDs sorted on the id, the order kept for ties.
+     * @return row IDs sorted on the name code, ties on the id then the row ID.
+     */
+    private static int[] sortByName(int[] nameCodes, int codeCount, int[] idOrder) {
+        int[] starts = new int[codeCount + 1];
+        for (int code : nameCodes) {
+            starts[code + 1]++;
+        }
+        for (int code = 0; code < codeCount; code++) {
+            starts[code + 1] += starts[code];
+        }
+        int[] rows = new int[nameCodes.length];
+        for (int row : idOrder) {
+            rows[starts[nameCodes[row]]++] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Get the row IDs sorted on the id, from the ID index.
+     *
+     * @return the rows in id order.
+     */
+    private int[] byIdRows() {
+        return indexes[GameData.ID.ordinal()].getSortedRows();
+    }
+
+    /**
+     * Get the row IDs sorted on a column, the same permutation the indexes are built on.
+     *
+     * @param col the column.
+     * @return row IDs sorted on the column value (ties on the id then the row ID), shared so
+     *         do not modify it, or null if the store is not indexed.
+     */
+    int[] getSortedRows(GameData col) {
+        if (col == GameData.NAME) {
+            return nameOrder;
+        }
+        ColumnIndex index = indexes[col.ordinal()];
+        return index == null ? null : index.getSortedRows();
+    }
+
+    /**
+     * Get the sorted index on a column.
+     *
+     * @param col the column.
+     * @return the index, or null if the column is not indexed.
+     */
+    ColumnIndex getIndex(GameData col) {
+        return indexes[col.ordinal()];
+    }
+
+    /**
+     * Get the bitmap of a clause over the whole store without scanning the columns, either
+     * from the cache, from the index on the column or from the name index.
+     *
+     * @param clause the clause to evaluate.
+     * @return the rows that match, or null if the clause needs a scan.
+     */
+    RowSet lookupBitmap(FilterClause clause) {
+        String key = clause.getKey();
+        synchronized (bitmapCache) {
+            CachedBitmap cached = bitmapCache.get(key);
+            if (cached != null) {
+                return cached.rows;
+            }
+        }
+        RowSet bitmap;
+        if (clause.getColumn() == GameData.NAME) {
+            boolean useNames = nameIndex != null && clause.getOperator() == Operations.CONTAINS;
+            bitmap = useNames ? nameIndex.contains(clause.getValue()) : null;
+        } else {
+            // the ID index is only a sort order, id is not used for filtering.
+            ColumnIndex index = clause.getColumn() == GameData.ID ? null
+                    : getIndex(clause.getColumn());
+            bitmap = index == null ? null : index.evaluate(clause);
+        }
+        if (bitmap != null) {
+            cacheBitmap(clause, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Scans the columns to get the bitmap of a clause over the whole store, and caches it.
+     *
+     * @param clause the clause to evaluate.
+     * @return the rows that match.
+     */
+    RowSet scanBitmap(FilterClause clause) {
+        return scanBitmap(clause, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * Scans the columns to get the bitmap of a clause over the whole store, with the rows cut
+     * into chunks that are scanned at the same time, and caches it.
+     *
+     * @param clause the clause to evaluate.
+     * @param parallelism how to split the scan.
+     * @return the rows that match.
+     */
+    RowSet scanBitmap(FilterClause clause, Parallelism parallelism) {
+        RowSet bitmap = RowSet.select(RowSet.all(size), clause.toRowPredicate(this), parallelism);
+        cacheBitmap(clause, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Adds a clause bitmap to the cache.
+     *
+     * @param clause the clause.
+     * @param bitmap the rows that match.
+     */
+    private void cacheBitmap(FilterClause clause, RowSet bitmap) {
+        synchronized (bitmapCache) {
+            bitmapCache.put(clause.getKey(), new CachedBitmap(clause, bitmap));
+        }
+    }
+
+    /**
+     * Empties the clause bitmap cache, so the next filters are evaluated from the indexes or
+     * the columns again. Used by the benchmarks.
+     */
+    void clearBitmapCache() {
+        synchronized (bitmapCache) {
+            bitmapCache.clear();
+        }
+    }
+
+    /**
+     * Applies a delta, building the updated store. This store is not changed, so anything
+     * still using it keeps working.
+     *
+     * Rows of upserted ids are written in place (when an id has more than one live row, the
+     * extra rows are removed), upserts of new ids are appended, and rows of removed ids become
+     * dead rows. The name dictionary stays sorted, new names are merged into it.
+     *
+     * @param delta the changes to apply.
+     * @return the updated store, and the rows the delta touched.
+     */
+    Update applyDelta(CatalogDelta delta) {
+        Map<Integer, BoardGame> upserts = new LinkedHashMap<>();
+        for (BoardGame game : delta.getUpserts()) {
+            upserts.put(game.getId(), game);
+        }
+        Set<Integer> removed = delta.getRemovedIds();
+        int[] deltaIds = new int[upserts.size() + removed.size()];
+        int n = 0;
+        for (int id : upserts.keySet()) {
+            deltaIds[n++] = id;
+        }
+        for (int id : removed) {
+            deltaIds[n++] = id;
+        }
+        Arrays.sort(deltaIds);
+
+        // find the rows of the ids in the delta. A bit per low bits of the ids rules out most
+        // rows, the others are searched for, and only the ids in the delta are boxed.
+        long[] idFilter = new long[ID_FILTER_WORDS];
+        for (int id : deltaIds) {
+            idFilter[(id >>> 6) & (ID_FILTER_WORDS - 1)] |= 1L << id;
+        }
+        int[] ids = intColumn(GameData.ID);
+        Map<Integer, Integer> reused = new HashMap<>();
+        int[] killed = new int[deltaIds.length];
+        int killedCount = 0;
+        for (int row = 0; row < size; row++) {
+            int id = ids[row];
+            if ((idFilter[(id >>> 6) & (ID_FILTER_WORDS - 1)] & (1L << id)) == 0
+                    || Arrays.binarySearch(deltaIds, id) < 0 || !liveRows.contains(row)) {
+                continue;
+            }
+            if (removed.contains(id) || reused.putIfAbsent(id, row) != null) {
+                if (killedCount == killed.length) {
+                    killed = Arrays.copyOf(killed, killedCount * 2 + 1);
+                }
+                killed[killedCount++] = row;
+            }
+        }
+        int newSize = size + upserts.size() - reused.size();
+
+        // merge the new names into the dictionary.
+        Set<String> freshNames = new TreeSet<>(GameStore::compareNames);
+        for (BoardGame game : upserts.values()) {
+            if (Arrays.binarySearch(nameDictionary, game.getName(), GameStore::compareNames) < 0) {
+                freshNames.add(game.getName());
+            }
+        }
+        String[] dictionary = nameDictionary;
+        int[] codeRemap = null;
+        int[] codes = Arrays.copyOf(nameCodes, newSize);
+        if (!freshNames.isEmpty()) {
+            dictionary = new String[nameDictionary.length + freshNames.size()];
+            codeRemap = new int[nameDictionary.length];
+            int i = 0;
+            int code = 0;
+            for (String name : freshNames) {
+                while (i < nameDictionary.length && compareNames(nameDictionary[i], name) < 0) {
+                    codeRemap[i] = code;
+                    dictionary[code++] = nameDictionary[i++];
+                }
+                dictionary[code++] = name;
+            }
+            while (i < nameDictionary.length) {
+                codeRemap[i] = code;
+                dictionary[code++] = nameDictionary[i++];
+            }
+            for (int row = 0; row < size; row++) {
+                codes[row] = codeRemap[codes[row]];
+            }
+        }
+
+        Columns columns = new Columns(dictionary, codes);
+        for (GameData col : GameData.values()) {
+            if (intColumns[col.ordinal()] != null) {
+                columns.ints[col.ordinal()] = Arrays.copyOf(intColumns[col.ordinal()], newSize);
+            } else if (doubleColumns[col.ordinal()] != null) {
+                columns.doubles[col.ordinal()] = Arrays.copyOf(doubleColumns[col.ordinal()], newSize);
+            }
+        }
+        int[] written = new int[upserts.size()];
+        int appended = size;
+        int count = 0;
+        for (BoardGame game : upserts.values()) {
+            Integer existing = reused.get(game.getId());
+            int row = existing != null ? existing : appended++;
+            codes[row] = Arrays.binarySearch(dictionary, game.getName(), GameStore::compareNames);
+            columns.setRow(row, game);
+            written[count++] = row;
+        }
+
+        RowSet writtenRows = RowSet.of(newSize, written);
+        RowSet killedRows = RowSet.of(newSize, killed, 0, killedCount);
+        RowSet live = liveRows.resize(newSize).andNot(killedRows).or(writtenRows);
+        RowSet touched = writtenRows.or(killedRows);
+        return new Update(new GameStore(this, columns, live, touched, codeRemap), touched);
+    }
+
+    /**
+     * Builds a store with only the live rows, so the dead rows left by deltas are dropped.
+     * The row IDs change.
+     *
+     * @return this store if it has no dead rows, a new store otherwise.
+     */
+    GameStore compact() {
+        if (liveRows.cardinality() == size) {
+            return this;
+        }
+        Builder builder = new Builder();
+        for (int row = liveRows.nextRow(0); row >= 0; row = liveRows.nextRow(row + 1)) {
+            BoardGame game = getGame(row);
+            builder.add(game.getName(), game.getId(), game.getMinPlayers(), game.getMaxPlayers(),
+                    game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(),
+                    game.getRank(), game.getRating(), game.getYearPublished());
+        }
+        return builder.build(isIndexed());
+    }
+
+    /**
+     * Get the BoardGame object for a row, built the first time the row is asked for and the
+     * same object after that.
+     *
+     * BoardGame only has final fields, so a game built by one thread is safe to read from
+     * another. Two threads may both build the game of a row, the games are then equal but not
+     * the same object, which is fine.
+     *
+     * @param row the row ID.
+     * @return the board game stored in that row.
+     */
+    public BoardGame getGame(int row) {
+        BoardGame game = games[row];
+        if (game == null) {
+            game = new BoardGame(getName(row), intColumn(GameData.ID)[row],
+                    intColumn(GameData.MIN_PLAYERS)[row], intColumn(GameData.MAX_PLAYERS)[row],
+                    intColumn(GameData.MIN_TIME)[row], intColumn(GameData.MAX_TIME)[row],
+                    doubleColumn(GameData.DIFFICULTY)[row], intColumn(GameData.RANK)[row],
+                    doubleColumn(GameData.RATING)[row], intColumn(GameData.YEAR)[row]);
+            games[row] = game;
+        }
+        return game;
+    }
+
+    /**
+     * Result of applying a delta to a store.
+     */
+    static final class Update {
+        /** The updated store. */
+        final GameStore store;
+        /** Rows that changed, were added or were removed, over the updated store. */
+        final RowSet touched;
+
+        /**
+         * Constructor for the result.
+         *
+         * @param store the updated store.
+         * @param touched rows that changed, were added or were removed.
+         */
+        Update(GameStore store, RowSet touched) {
+            this.store = store;
+            this.touched = touched;
+        }
+    }
+
+    /**
+     * A clause bitmap in the cache, with its clause so it can be checked again after a delta.
+     */
+    private static final class CachedBitmap {
+        /** The clause. */
+        final FilterClause clause;
+        /** Rows that match the clause. */
+        final RowSet rows;
+
+        /**
+         * Constructor for the entry.
+         *
+         * @param clause the clause.
+         * @param rows rows that match the clause.
+         */
+        CachedBitmap(FilterClause clause, RowSet rows) {
+            this.clause = clause;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * The arrays behind a store, used to build a store without going through a Builder (from a
+     * snapshot for example). Arrays are indexed by GameData ordinal.
+     */
+    static final class Columns {
+        /** Distinct names, sorted with compareNames. */
+        final String[] dictionary;
+        /** Index into the dictionary for each row. */
+        final int[] nameCodes;
+        /** Int columns by GameData ordinal. */
+        final int[][] ints = new int[GameData.values().length][];
+        /** Double columns by GameData ordinal. */
+        final double[][] doubles = new double[GameData.values().length][];
+        /** Sorted rows of the column indexes by GameData ordinal, null to build them. */
+        final int[][] sortedRows = new int[GameData.values().length][];
+
+        /**
+         * Constructor for the columns, the numeric columns are set afterwards.
+         *
+         * @param dictionary distinct names, sorted with compareNames.
+         * @param nameCodes index into the dictionary for each row.
+         */
+        Columns(String[] dictionary, int[] nameCodes) {
+            this.dictionary = dictionary;
+            this.nameCodes = nameCodes;
+        }
+
+        /**
+         * Writes the numeric columns of a row, the name code is set by the caller.
+         *
+         * @param row the row ID.
+         * @param game the game to write.
+         */
+        void setRow(int row, BoardGame game) {
+            ints[GameData.ID.ordinal()][row] = game.getId();
+            ints[GameData.MIN_PLAYERS.ordinal()][row] = game.getMinPlayers();
+            ints[GameData.MAX_PLAYERS.ordinal()][row] = game.getMaxPlayers();
+            ints[GameData.MIN_TIME.ordinal()][row] = game.getMinPlayTime();
+            ints[GameData.MAX_TIME.ordinal()][row] = game.getMaxPlayTime();
+            ints[GameData.RANK.ordinal()][row] = game.getRank();
+            ints[GameData.YEAR.ordinal()][row] = game.getYearPublished();
+            doubles[GameData.DIFFICULTY.ordinal()][row] = game.getDifficulty();
+            doubles[GameData.RATING.ordinal()][row] = game.getRating();
+        }
+    }
+
+    /**
+     * Collects rows one at a time into growable columns, so a store can be built without
+     * creating a BoardGame object per row.
+     */
+    static final class Builder {
+        /** Starting capacity of the columns. */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** Number of rows collected. */
+        private int size;
+        /** Name column. */
+        private String[] names = new String[INITIAL_CAPACITY];
+        /** Unique identifier column. */
+        private int[] ids = new int[INITIAL_CAPACITY];
+        /** Minimum players column. */
+        private int[] minPlayers = new int[INITIAL_CAPACITY];
+        /** Maximum players column. */
+        private int[] maxPlayers = new int[INITIAL_CAPACITY];
+        /** Minimum play time column. */
+        private int[] minPlayTime = new int[INITIAL_CAPACITY];
+        /** Maximum play time column. */
+        private int[] maxPlayTime = new int[INITIAL_CAPACITY];
+        /** Rank column. */
+        private int[] rank = new int[INITIAL_CAPACITY];
+        /** Year published column. */
+        private int[] yearPublished = new int[INITIAL_CAPACITY];
+        /** Difficulty column. */
+        private double[] difficulty = new double[INITIAL_CAPACITY];
+        /** Average rating column. */
+        private double[] rating = new double[INITIAL_CAPACITY];
+
+        /**
+         * Builds a builder holding a collection of games.
+         *
+         * @param games the games, in iteration order.
+         * @return the builder.
+         */
+        static Builder of(Collection<BoardGame> games) {
+            Builder builder = new Builder();
+            for (BoardGame game : games) {
+                builder.add(game.getName(), game.getId(), game.getMinPlayers(), game.getMaxPlayers(),
+                        game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(),
+                        game.getRank(), game.getRating(), game.getYearPublished());
+            }
+            return builder;
+        }
+
+        /**
+         * Concatenates builders, in order, into a single builder.
+         *
+         * @param parts the builders to concatenate.
+         * @return a builder with the rows of every part.
+         */
+        static Builder concat(List<Builder> parts) {
+            Builder result = new Builder();
+            int total = 0;
+            for (Builder part : parts) {
+                total += part.size;
+            }
+            result.grow(Math.max(total, INITIAL_CAPACITY));
+            for (Builder part : parts) {
+                int at = result.size;
+                int n = part.size;
+                System.arraycopy(part.names, 0, result.names, at, n);
+                System.arraycopy(part.ids, 0, result.ids, at, n);
+                System.arraycopy(part.minPlayers, 0, result.minPlayers, at, n);
+                System.arraycopy(part.maxPlayers, 0, result.maxPlayers, at, n);
+                System.arraycopy(part.minPlayTime, 0, result.minPlayTime, at, n);
+                System.arraycopy(part.maxPlayTime, 0, result.maxPlayTime, at, n);
+                System.arraycopy(part.rank, 0, result.rank, at, n);
+                System.arraycopy(part.yearPublished, 0, result.yearPublished, at, n);
+                System.arraycopy(part.difficulty, 0, result.difficulty, at, n);
+                System.arraycopy(part.rating, 0, result.rating, at, n);
+                result.size += n;
+            }
+            return result;
+        }
+
+        /**
+         * Get the number of rows collected.
+         *
+         * @return the number of rows.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Adds a row, same parameter order as the BoardGame constructor.
+         *
+         * @param name game name
+         * @param id unique identifier
+         * @param minPlayers minimum number of players
+         * @param maxPlayers maximum number of players
+         * @param minPlayTime minimum play time in minutes
+         * @param maxPlayTime maximum play time in minutes
+         * @param difficulty average difficulty of the game
+         * @param rank rank of the game
+         * @param rating average rating of the game
+         * @param yearPublished year the game was published
+         */
+        void add(String name, int id, int minPlayers, int maxPlayers, int minPlayTime,
+                int maxPlayTime, double difficulty, int rank, double rating, int yearPublished) {
+            if (size == ids.length) {
+                grow(size * 2);
+            }
+            this.names[size] = name;
+            this.ids[size] = id;
+            this.minPlayers[size] = minPlayers;
+            this.maxPlayers[size] = maxPlayers;
+            this.minPlayTime[size] = minPlayTime;
+            this.maxPlayTime[size] = maxPlayTime;
+            this.difficulty[size] = difficulty;
+            this.rank[size] = rank;
+            this.rating[size] = rating;
+            this.yearPublished[size] = yearPublished;
+            size++;
+        }
+
+        /**
+         * Resizes every column.
+         *
+         * @param capacity the new capacity.
+         */
+        private void grow(int capacity) {
+            names = Arrays.copyOf(names, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            minPlayers = Arrays.copyOf(minPlayers, capacity);
+            maxPlayers = Arrays.copyOf(maxPlayers, capacity);
+            minPlayTime = Arrays.copyOf(minPlayTime, capacity);
+            maxPlayTime = Arrays.copyOf(maxPlayTime, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            yearPublished = Arrays.copyOf(yearPublished, capacity);
+            difficulty = Arrays.copyOf(difficulty, capacity);
+            rating = Arrays.copyOf(rating, capacity);
+        }
+
+        /**
+         * Turns the rows collected into columns. Rows with the same name and id as an earlier
+         * row are dropped, the same way a Set of BoardGame would.
+         *
+         * @return the columns.
+         */
+        Columns toColumns() {
+            String[] rowNames = Arrays.copyOf(names, size);
+            String[] dictionary = buildDictionary(rowNames);
+            int[] codes = new int[size];
+            for (int i = 0; i < size; i++) {
+                codes[i] = Arrays.binarySearch(dictionary, rowNames[i], GameStore::compareNames);
+            }
+
+            boolean[] dropped = findDuplicates(ids, codes, size);
+            Columns columns = new Columns(dictionary, compact(codes, size, dropped));
+            columns.ints[GameData.ID.ordinal()] = compact(ids, size, dropped);
+            columns.ints[GameData.MIN_PLAYERS.ordinal()] = compact(minPlayers, size, dropped);
+            columns.ints[GameData.MAX_PLAYERS.ordinal()] = compact(maxPlayers, size, dropped);
+            columns.ints[GameData.MIN_TIME.ordinal()] = compact(minPlayTime, size, dropped);
+            columns.ints[GameData.MAX_TIME.ordinal()] = compact(maxPlayTime, size, dropped);
+            columns.ints[GameData.RANK.ordinal()] = compact(rank, size, dropped);
+            columns.ints[GameData.YEAR.ordinal()] = compact(yearPublished, size, dropped);
+            columns.doubles[GameData.DIFFICULTY.ordinal()] = compact(difficulty, size, dropped);
+            columns.doubles[GameData.RATING.ordinal()] = compact(rating, size, dropped);
+            return columns;
+        }
+
+        /**
+         * Builds the store from the rows collected.
+         *
+         * @param indexed whether to build the sorted indexes.
+         * @return the store.
+         */
+        GameStore build(boolean indexed) {
+            return new GameStore(toColumns(), indexed);
+        }
+    }
+}
@@ -1,28 +1,48 @@
 package student;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Loads the games from the csv file into a set of BoardGame objects.
  * This file is stored in the resources folder, and while it is
  * passed in - often tends to be more fixed.
- * 
+ *
  * It assumes there are no comma's in the data (and does not handle errors if
  * there are extra commas like in the name).
- * 
+ *
+ * Resources are streamed through a fixed size buffer, one row at a time, so the whole
+ * file is never held in memory. Files on disk can also be memory mapped and parsed in
+ * parallel chunks.
  */
 public final class GamesLoader {
-    /** Standard csv delim. */
-    private static final String DELIMITER = ",";
+    /** Size of the read buffer, grows if a single line is longer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Smallest chunk of a mapped file given to a single task. */
+    private static final long MIN_CHUNK = 1L << 20;
+    /** Chunks per worker thread, more than one so fast workers can pick up slack. */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Bytes mapped past the end of a range to finish its last line. */
+    private static final int LINE_SLACK = 1 << 16;
+    /**
+     * Largest chunk of a mapped file given to a single task, so the chunk, the byte before it
+     * and the slack after it fit in one map buffer, which holds at most Integer.MAX_VALUE bytes.
+     */
+    private static final long MAX_CHUNK = Integer.MAX_VALUE - 1L - LINE_SLACK;
 
     /** private constructor to prevent instantiation. */
     private GamesLoader() {
@@ -30,91 +50,416 @@ public final class GamesLoader {
 
     /**
      * Loads the games from the csv file into a set of BoardGame objects.
-     * 
+     *
      * @param filename the name of the file to load
      * @return a set of BoardGame objects
      */
     public static Set<BoardGame> loadGamesFile(String filename) {
+        GameStore store = loadGameStore(filename, false);
+        // rows are already unique, and the hashes are cached, so adding is cheap.
+        Set<BoardGame> games = new HashSet<>(store.size() * 4 / 3 + 1);
+        for (int row = 0; row < store.size(); row++) {
+            games.add(store.getGame(row));
+        }
+        return games;
+    }
 
-        Set<BoardGame> games = new HashSet<>();
+    /**
+     * Loads the games from the csv file into a columnar GameStore, with the sorted indexes on
+     * the numeric columns built at load time.
+     *
+     * @param filename the name of the file to load
+     * @return the store with all the games in the file
+     */
+    public static GameStore loadGameStore(String filename) {
+        return loadGameStore(filename, true);
+    }
 
-        List<String> lines;
-        try {
-            // this is so we can store the files in the resources folder
-            InputStream is = GamesLoader.class.getResourceAsStream(filename);
-            InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(isr);
-            lines = reader.lines().collect(Collectors.toList());
+    /**
+     * Loads the games from the csv file straight into the columns of a GameStore.
+     *
+     * @param filename the name of the file to load
+     * @param indexed whether to build the sorted indexes
+     * @return the store with all the games in the file, empty if the file can not be read
+     */
+    public static GameStore loadGameStore(String filename, boolean indexed) {
+        GameStore.Builder builder = new GameStore.Builder();
+        // this is so we can store the files in the resources folder
+        try (InputStream is = GamesLoader.class.getResourceAsStream(filename)) {
+            readRows(is, builder);
         } catch (Exception e) {
             System.err.println("Error reading file: " + e.getMessage());
-            return games;
+            return new GameStore.Builder().build(indexed);
         }
-        if (lines == null || lines.isEmpty()) {
-            return games;
+        return builder.build(indexed);
+    }
+
+    /**
+     * Loads the games from a csv file on disk into a GameStore.
+     *
+     * The file is memory mapped and split into chunks, the chunks are parsed in parallel on
+     * the common fork-join pool into their own columns, and the columns are then joined in file
+     * order.
+     *
+     * @param file the csv file
+     * @param indexed whether to build the sorted indexes
+     * @return the store with all the games in the file, empty if the file can not be read
+     */
+    public static GameStore loadGameStore(Path file, boolean indexed) {
+        try {
+            return loadGameStore(file, indexed, chunkSize(file));
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new GameStore.Builder().build(indexed);
         }
+    }
 
-        Map<GameData, Integer> columnMap = processHeader(lines.remove(0));
+    /**
+     * Get the size of the chunks a file is split into, a few chunks per thread of the pool.
+     *
+     * @param file the csv file
+     * @return bytes of the file per task, at most MAX_CHUNK
+     */
+    private static long chunkSize(Path file) {
+        long chunks = (long) ForkJoinPool.commonPool().getParallelism() * CHUNKS_PER_THREAD;
+        return Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, file.toFile().length() / chunks + 1));
+    }
 
-        games = lines.stream().map(line -> toBoardGame(line, columnMap))
-                .filter(game -> game != null).collect(Collectors.toSet());
+    /**
+     * Loads a csv file on disk and compares it with a store, to get the changes to apply
+     * instead of replacing the whole store.
+     *
+     * @param current the store to update
+     * @param file the csv file with the whole catalog
+     * @return the games that are new or changed and the ids that are gone, empty if the file
+     *         can not be read (not a delta that removes every game)
+     */
+    public static CatalogDelta loadDelta(GameStore current, Path file) {
+        try {
+            return CatalogDelta.diff(current, loadGameStore(file, false, chunkSize(file)));
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return CatalogDelta.EMPTY;
+        }
+    }
 
-        return games;
+    /**
+     * Loads a GameStore from a binary snapshot written by saveSnapshot.
+     *
+     * The columns are copied straight out of the mapped file, with no parsing, and the sorted
+     * indexes are read from the snapshot when it has them.
+     *
+     * @param file the snapshot file
+     * @param indexed whether the store needs its indexes
+     * @return the store in the snapshot, empty if the file can not be read
+     */
+    public static GameStore loadSnapshot(Path file, boolean indexed) {
+        try {
+            return StoreSnapshot.read(file, indexed);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new GameStore.Builder().build(indexed);
+        }
+    }
+
+    /**
+     * Saves a GameStore to a binary snapshot, for a faster start the next time.
+     *
+     * @param store the store to save
+     * @param file the snapshot file, overwritten if it exists
+     * @return true if the snapshot was written
+     */
+    public static boolean saveSnapshot(GameStore store, Path file) {
+        try {
+            StoreSnapshot.write(store, file);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * Loads a csv file on disk with memory mapped, parallel chunks of a given size.
+     *
+     * @param file the csv file
+     * @param indexed whether to build the sorted indexes
+     * @param chunkSize bytes of the file per task
+     * @return the store with all the games in the file
+     * @throws UncheckedIOException if the file can not be read
+     */
+    static GameStore loadGameStore(Path file, boolean indexed, long chunkSize) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // map a small window for the header, growing it only for a very long header.
+            long window = Math.min(size, LINE_SLACK);
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, window);
+            int headerEnd = 0;
+            while (true) {
+                while (headerEnd < head.limit() && head.get(headerEnd) != '\n') {
+                    headerEnd++;
+                }
+                if (headerEnd < head.limit() || window == Math.min(size, Integer.MAX_VALUE)) {
+                    break;
+                }
+                window = Math.min(Math.min(size, Integer.MAX_VALUE), window * 2);
+                head = channel.map(FileChannel.MapMode.READ_ONLY, 0, window);
+            }
+            if (headerEnd == 0 || headerEnd + 1L >= size) {
+                return new GameStore.Builder().build(indexed);
+            }
+            byte[] header = new byte[lineEnd(head, 0, headerEnd)];
+            head.get(0, header);
+            ChunkTask task = new ChunkTask(channel, new String(header, StandardCharsets.UTF_8),
+                    headerEnd + 1L, size, size, chunkSize);
+            List<GameStore.Builder> parts = ForkJoinPool.commonPool().invoke(task);
+            return GameStore.Builder.concat(parts).build(indexed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Converts a line from the csv file into a BoardGame object.
-     * 
-     * @param line      the line to convert
-     * @param columnMap the map of columns to index
-     * @return a BoardGame object
+     * Reads the csv rows from a stream into a builder.
+     *
+     * The first line is the header. Lines are found in a buffer that is reused, and each line
+     * is parsed in place, only a partial line at the end of the buffer is moved to the front
+     * before reading more.
+     *
+     * @param is the stream of the csv file
+     * @param builder builder to add the rows to
+     * @throws IOException if the stream can not be read
      */
-    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap) {
-        String[] columns = line.split(DELIMITER);
-        if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
-            return null;
+    static void readRows(InputStream is, GameStore.Builder builder) throws IOException {
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        CsvParser parser = null;
+        int filled = 0;
+        boolean eof = false;
+        while (!eof) {
+            if (filled == bytes.length) {
+                // a single line is larger than the buffer.
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buf = ByteBuffer.wrap(bytes);
+            }
+            int read = is.read(bytes, filled, bytes.length - filled);
+            if (read < 0) {
+                eof = true;
+            } else {
+                filled += read;
+            }
+
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (bytes[i] == '\n') {
+                    parser = processLine(buf, lineStart, lineEnd(bytes, lineStart, i), parser, builder);
+                    lineStart = i + 1;
+                }
+            }
+            if (eof && lineStart < filled) {
+                parser = processLine(buf, lineStart, lineEnd(bytes, lineStart, filled), parser, builder);
+                lineStart = filled;
+            }
+            System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+            filled -= lineStart;
         }
+    }
 
-        try {
-            BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
-                    Integer.parseInt(columns[columnMap.get(GameData.ID)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_PLAYERS)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MIN_TIME)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.MAX_TIME)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.DIFFICULTY)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.RANK)]),
-                    Double.parseDouble(columns[columnMap.get(GameData.RATING)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.YEAR)]));
-            return game;
-        } catch (NumberFormatException e) {
-            // skip if there is an issue
-            return null;
+    /**
+     * Gets the end of a line without a trailing carriage return.
+     *
+     * @param bytes the buffer
+     * @param start start of the line
+     * @param end position of the line break
+     * @return end of the line content (exclusive)
+     */
+    private static int lineEnd(byte[] bytes, int start, int end) {
+        return end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Gets the end of a line without a trailing carriage return.
+     *
+     * @param buf the buffer
+     * @param start start of the line
+     * @param end position of the line break
+     * @return end of the line content (exclusive)
+     */
+    private static int lineEnd(ByteBuffer buf, int start, int end) {
+        return end > start && buf.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Processes one line, the first line is the header and builds the parser.
+     *
+     * @param buf the buffer
+     * @param start start of the line
+     * @param end end of the line (exclusive)
+     * @param parser parser built from the header, null until the header is read
+     * @param builder builder to add the rows to
+     * @return the parser to use for the next lines
+     */
+    private static CsvParser processLine(ByteBuffer buf, int start, int end, CsvParser parser,
+            GameStore.Builder builder) {
+        if (parser == null) {
+            byte[] header = new byte[end - start];
+            buf.get(start, header);
+            return new CsvParser(new String(header, StandardCharsets.UTF_8));
         }
+        parser.parseRow(buf, start, end, builder);
+        return parser;
     }
 
     /**
-     * Processes the header line to determine the column mapping.
-     * 
-     * It is common to do this for csv files as the columns can be in any order.
-     * This makes it order independent by taking a moment to link the columns
-     * with their actual index in the file.
-     * 
-     * @param header the header line
-     * @return a map of column to index
+     * Fork-join task that parses the rows of a range of a mapped csv file.
+     *
+     * A task owns every line that starts inside its range, so the ranges can be split at any
+     * byte: a task skips the partial line at the start of its range, and reads past the end of
+     * its range to finish its last line.
      */
-    private static Map<GameData, Integer> processHeader(String header) {
-        Map<GameData, Integer> columnMap = new HashMap<>();
-        String[] columns = header.split(DELIMITER);
-        for (int i = 0; i < columns.length; i++) {
+    private static final class ChunkTask extends RecursiveTask<List<GameStore.Builder>> {
+        /** Serial version, tasks are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        /** The open file. */
+        private final transient FileChannel channel;
+        /** The header line of the file. */
+        private final String header;
+        /** First byte of the range. */
+        private final long from;
+        /** End of the range (exclusive). */
+        private final long to;
+        /** Size of the file. */
+        private final long fileSize;
+        /** Largest range parsed without splitting. */
+        private final long chunkSize;
+        /** Whether from is the first row of the file. */
+        private final boolean firstRow;
+
+        /**
+         * Constructor for the task on the rows of the whole file.
+         *
+         * @param channel the open file
+         * @param header the header line
+         * @param from start of the first row
+         * @param to end of the range (exclusive)
+         * @param fileSize size of the file
+         * @param chunkSize largest range parsed without splitting
+         */
+        ChunkTask(FileChannel channel, String header, long from, long to, long fileSize,
+                long chunkSize) {
+            this(channel, header, from, to, fileSize, chunkSize, true);
+        }
+
+        /**
+         * Constructor for the task.
+         *
+         * @param channel the open file
+         * @param header the header line
+         * @param from first byte of the range
+         * @param to end of the range (exclusive)
+         * @param fileSize size of the file
+         * @param chunkSize largest range parsed without splitting
+         * @param firstRow whether from is the first row of the file
+         */
+        private ChunkTask(FileChannel channel, String header, long from, long to, long fileSize,
+                long chunkSize, boolean firstRow) {
+            this.channel = channel;
+            this.header = header;
+            this.from = from;
+            this.to = to;
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+            this.firstRow = firstRow;
+        }
+
+        /**
+         * Splits the range in half until it is small enough, then parses it.
+         *
+         * @return the parsed rows of each chunk, in file order
+         */
+        @Override
+        protected List<GameStore.Builder> compute() {
+            if (to - from <= Math.min(chunkSize, MAX_CHUNK)) {
+                List<GameStore.Builder> parts = new ArrayList<>();
+                parts.add(parse());
+                return parts;
+            }
+            long mid = from + (to - from) / 2;
+            ChunkTask left = new ChunkTask(channel, header, from, mid, fileSize, chunkSize, firstRow);
+            ChunkTask right = new ChunkTask(channel, header, mid, to, fileSize, chunkSize, false);
+            right.fork();
+            List<GameStore.Builder> parts = left.compute();
+            parts.addAll(right.join());
+            return parts;
+        }
+
+        /**
+         * Maps the range and parses the lines that start in it.
+         *
+         * @return the parsed rows
+         */
+        private GameStore.Builder parse() {
+            GameStore.Builder builder = new GameStore.Builder();
+            CsvParser parser = new CsvParser(header);
+            // map from the byte before the range, to tell if the range starts on a new line.
+            long mapStart = firstRow ? from : from - 1;
+            int stop = (int) (to - mapStart);
+            long mapSize = Math.min(fileSize - mapStart, stop + LINE_SLACK);
+            MappedByteBuffer buf = map(mapStart, mapSize);
+            // grow the mapping until the last line of the range ends inside it.
+            while (mapStart + mapSize < fileSize && !hasNewline(buf, stop - 1)) {
+                mapSize = Math.min(fileSize - mapStart, Math.min(Integer.MAX_VALUE, mapSize * 2));
+                buf = map(mapStart, mapSize);
+            }
+            int limit = buf.limit();
+            int pos = 0;
+            if (!firstRow) {
+                while (pos < limit && buf.get(pos) != '\n') {
+                    pos++;
+                }
+                pos++;
+            }
+            while (pos < stop) {
+                int newline = pos;
+                while (newline < limit && buf.get(newline) != '\n') {
+                    newline++;
+                }
+                parser.parseRow(buf, pos, lineEnd(buf, pos, newline), builder);
+                pos = newline + 1;
+            }
+            return builder;
+        }
+
+        /**
+         * Maps part of the file.
+         *
+         * @param start first byte to map
+         * @param size number of bytes to map
+         * @return the mapped bytes
+         */
+        private MappedByteBuffer map(long start, long size) {
             try {
-                GameData col = GameData.fromColumnName(columns[i]);
-                columnMap.put(col, i);
-            } catch (IllegalArgumentException e) {
-                // System.out.println("Ignoring column: " + columns[i]);
+                return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
-        return columnMap;
-    }
 
+        /**
+         * Checks if there is a line break at or after a position.
+         *
+         * @param buf the mapped bytes
+         * @param from position to start looking at
+         * @return true if a line break is found before the end of the mapping
+         */
+        private static boolean hasNewline(ByteBuffer buf, int from) {
+            for (int i = Math.max(0, from); i < buf.limit(); i++) {
+                if (buf.get(i) == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -87,6 +87,19 @@ public interface IGameList {
      */
     void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException;
 
+    /**
+     * Adds a game or games to the list, from a filtered list that is already sorted, such as
+     * {@link IPlanner#getResult()}. Works the same as {@link #addToList(String, Stream)}, but
+     * the games are taken from the list by position, without reading the whole filter.
+     * 
+     * @param str      the string to parse and add games to the list.
+     * @param filtered the filtered list to use as a basis for adding.
+     * @throws IllegalArgumentException if the string is not valid.
+     */
+    default void addToList(String str, List<BoardGame> filtered) throws IllegalArgumentException {
+        addToList(str, filtered.stream());
+    }
+
     /**
      * Removes a game or games from the list.
      * 
@@ -1,5 +1,6 @@
 package student;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -115,6 +116,117 @@ public interface IPlanner {
      */
     Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending);
 
+    /**
+     * Compiles a text filter into a plan that can be reused.
+     * 
+     * The filter is parsed once (columns, operators and values), so passing the plan to
+     * {@link #filter(FilterPlan, GameData, boolean)} skips the parsing. The plan does not depend on
+     * the current filter, so it can be applied again after reset is called.
+     * 
+     * @param filter The filter to compile, same format as {@link #filter(String, GameData, boolean)}.
+     * @return The compiled filter.
+     */
+    FilterPlan compile(String filter);
+
+    /**
+     * Filters the board games with a compiled plan. Works the same as
+     * {@link #filter(String, GameData, boolean)}, including being progressive.
+     * 
+     * @param plan The compiled filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending Whether to sort the results in ascending order or descending order.
+     * @return A stream of board games that match the filter.
+     */
+    Stream<BoardGame> filter(FilterPlan plan, GameData sortOn, boolean ascending);
+
+    /**
+     * Filters the board games by the passed in text filter, sorted on a sort specification.
+     * Works the same as {@link #filter(String, GameData, boolean)}, including being progressive.
+     * 
+     * Games that tie on every column of the spec are ordered by id, so the order of the results
+     * is always the same for the same games.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @param sort The columns to sort the results on with their directions, see
+     *             {@link SortSpec#parse(String)}.
+     * @return A stream of board games that match the filter.
+     */
+    Stream<BoardGame> filter(String filter, SortSpec sort);
+
+    /**
+     * Filters the board games with a compiled plan, sorted on a sort specification.
+     * 
+     * @param plan The compiled filter to apply to the board games.
+     * @param sort The columns to sort the results on with their directions.
+     * @return A stream of board games that match the filter.
+     * @see #filter(String, SortSpec)
+     */
+    Stream<BoardGame> filter(FilterPlan plan, SortSpec sort);
+
+    /**
+     * Filters the board games by the passed in text filter, and returns only one page of the
+     * sorted results. Works the same as {@link #filter(String, GameData, boolean)}, including
+     * being progressive, but the games outside the page are never sorted.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending Whether to sort the results in ascending order or descending order.
+     * @param offset The position of the first game of the page, starting at 0.
+     * @param limit The largest number of games in the page.
+     * @return The page of board games that match the filter.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     */
+    ResultPage filter(String filter, GameData sortOn, boolean ascending, int offset, int limit);
+
+    /**
+     * Filters the board games with a compiled plan, and returns only one page of the sorted
+     * results.
+     * 
+     * @param plan The compiled filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending Whether to sort the results in ascending order or descending order.
+     * @param offset The position of the first game of the page, starting at 0.
+     * @param limit The largest number of games in the page.
+     * @return The page of board games that match the filter.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     * @see #filter(String, GameData, boolean, int, int)
+     */
+    ResultPage filter(FilterPlan plan, GameData sortOn, boolean ascending, int offset, int limit);
+
+    /**
+     * Filters the board games with a compiled plan, and returns only one page of the results
+     * sorted on a sort specification.
+     * 
+     * @param plan The compiled filter to apply to the board games.
+     * @param sort The columns to sort the results on with their directions.
+     * @param offset The position of the first game of the page, starting at 0.
+     * @param limit The largest number of games in the page.
+     * @return The page of board games that match the filter.
+     * @throws IllegalArgumentException if offset or limit is negative.
+     * @see #filter(String, GameData, boolean, int, int)
+     */
+    ResultPage filter(FilterPlan plan, SortSpec sort, int offset, int limit);
+
+    /**
+     * Gets the page that follows a page, in the same order and on the current filter. No filter
+     * is applied.
+     * 
+     * @param page The previous page.
+     * @param limit The largest number of games in the page.
+     * @return The next page, empty if the previous page was the last one.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    ResultPage nextPage(ResultPage page, int limit);
+
+    /**
+     * Gets the result of the last filter, in the order it was sorted in, as a read only list
+     * with positional access. The list is a view of the result that is already there, reading
+     * it does not run the filter again.
+     * 
+     * @return The games of the last filter, all games sorted by name if there is none.
+     */
+    List<BoardGame> getResult();
+
     /**
      * Resets the collection to have no filters applied.
      */
@@ -0,0 +1,250 @@
+package student;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trigram index on the lower case names of a GameStore, used for name~= (contains) filters.
+ *
+ * Every run of three characters of a name points to the name codes that contain it. A contains
+ * query intersects the lists of the trigrams in the value, and only checks the names that are
+ * left with String.contains. Values shorter than three characters check the distinct names.
+ */
+final class NameIndex {
+    /** Length of the n-grams. */
+    private static final int GRAM = 3;
+    /** Bits per character in a packed trigram. */
+    private static final int CHAR_BITS = Character.SIZE;
+
+    /** Lower case names, by name code. */
+    private final String[] lowerNames;
+    /** Name codes that contain each trigram, in ascending order. */
+    private final Map<Long, int[]> postings;
+    /** Start of the rows of each name code in rowsByCode, one extra entry at the end. */
+    private final int[] codeOffsets;
+    /** Row IDs grouped by name code. */
+    private final int[] rowsByCode;
+    /** Number of rows in the store. */
+    private final int size;
+
+    /**
+     * Builds the index for a store.
+     *
+     * @param store the store to index.
+     * @param lowerNames lower case names of the store, by name code.
+     */
+    NameIndex(GameStore store, String[] lowerNames) {
+        this(store, lowerNames, Map.of(), allCodes(lowerNames.length));
+    }
+
+    /**
+     * Builds the index for a store from the trigram lists of the names that are already indexed
+     * plus the names that are not.
+     *
+     * @param store the store to index.
+     * @param lowerNames lower case names of the store, by name code.
+     * @param indexed trigram lists of the names already indexed, with the codes of this store.
+     * @param newCodes codes of the names to add to the lists, in ascending order.
+     */
+    private NameIndex(GameStore store, String[] lowerNames, Map<Long, int[]> indexed,
+            int[] newCodes) {
+        this.lowerNames = lowerNames;
+        this.size = store.size();
+
+        // counting sort of the rows on their name code.
+        codeOffsets = new int[lowerNames.length + 1];
+        for (int row = 0; row < size; row++) {
+            codeOffsets[store.getNameCode(row) + 1]++;
+        }
+        for (int code = 0; code < lowerNames.length; code++) {
+            codeOffsets[code + 1] += codeOffsets[code];
+        }
+        rowsByCode = new int[size];
+        int[] next = Arrays.copyOf(codeOffsets, lowerNames.length);
+        for (int row = 0; row < size; row++) {
+            rowsByCode[next[store.getNameCode(row)]++] = row;
+        }
+
+        // the first entry of each list is the number of codes used.
+        Map<Long, int[]> lists = new HashMap<>();
+        for (int code : newCodes) {
+            String name = lowerNames[code];
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                int[] list = lists.computeIfAbsent(trigram(name, i), k -> new int[] {0, 0, 0, 0});
+                int count = list[0];
+                if (count > 0 && list[count] == code) {
+                    continue; // trigram repeats in the same name.
+                }
+                if (count + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                    lists.put(trigram(name, i), list);
+                }
+                list[count + 1] = code;
+                list[0] = count + 1;
+            }
+        }
+        postings = new HashMap<>(indexed);
+        for (Map.Entry<Long, int[]> entry : lists.entrySet()) {
+            int[] list = entry.getValue();
+            int[] added = Arrays.copyOfRange(list, 1, list[0] + 1);
+            int[] existing = postings.get(entry.getKey());
+            postings.put(entry.getKey(), existing == null ? added : union(existing, added));
+        }
+    }
+
+    /**
+     * Builds the index of a store that was updated from another one, only the names that are
+     * new get their trigrams extracted.
+     *
+     * @param base index of the store before the update.
+     * @param store the updated store.
+     * @param lowerNames lower case names of the updated store, by name code.
+     * @param codeRemap new code of each old name code, in ascending order, or null if the codes
+     *                  did not change.
+     * @return the index of the updated store.
+     */
+    static NameIndex update(NameIndex base, GameStore store, String[] lowerNames, int[] codeRemap) {
+        if (codeRemap == null) {
+            return new NameIndex(store, lowerNames, base.postings, new int[0]);
+        }
+        Map<Long, int[]> remapped = new HashMap<>(base.postings.size() * 2);
+        for (Map.Entry<Long, int[]> entry : base.postings.entrySet()) {
+            int[] codes = entry.getValue().clone();
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = codeRemap[codes[i]]; // the remap keeps the order.
+            }
+            remapped.put(entry.getKey(), codes);
+        }
+        boolean[] known = new boolean[lowerNames.length];
+        for (int code : codeRemap) {
+            known[code] = true;
+        }
+        int[] newCodes = new int[lowerNames.length - codeRemap.length];
+        int count = 0;
+        for (int code = 0; code < known.length; code++) {
+            if (!known[code]) {
+                newCodes[count++] = code;
+            }
+        }
+        return new NameIndex(store, lowerNames, remapped, newCodes);
+    }
+
+    /**
+     * Get every code of a dictionary.
+     *
+     * @param count size of the dictionary.
+     * @return the codes 0 to count - 1.
+     */
+    private static int[] allCodes(int count) {
+        int[] all = new int[count];
+        for (int code = 0; code < count; code++) {
+            all[code] = code;
+        }
+        return all;
+    }
+
+    /**
+     * Packs three characters of a string into a key.
+     *
+     * @param str the string.
+     * @param start position of the first character.
+     * @return the packed trigram.
+     */
+    private static long trigram(String str, int start) {
+        return ((long) str.charAt(start) << (2 * CHAR_BITS))
+                | ((long) str.charAt(start + 1) << CHAR_BITS)
+                | str.charAt(start + 2);
+    }
+
+    /**
+     * Finds the rows whose lower case name contains a value.
+     *
+     * @param value lower case value to search for.
+     * @return the rows that contain the value.
+     */
+    RowSet contains(String value) {
+        int[] candidates = candidates(value);
+        int[] rows = new int[size];
+        int count = 0;
+        for (int code : candidates) {
+            if (lowerNames[code].contains(value)) {
+                int from = codeOffsets[code];
+                int to = codeOffsets[code + 1];
+                System.arraycopy(rowsByCode, from, rows, count, to - from);
+                count += to - from;
+            }
+        }
+        return RowSet.of(size, rows, 0, count);
+    }
+
+    /**
+     * Get the name codes that may contain a value, using the trigram lists.
+     *
+     * @param value lower case value to search for.
+     * @return candidate name codes, all of them if the value is too short for trigrams.
+     */
+    private int[] candidates(String value) {
+        if (value.length() < GRAM) {
+            return allCodes(lowerNames.length);
+        }
+        int grams = value.length() - GRAM + 1;
+        int[][] lists = new int[grams][];
+        for (int i = 0; i < grams; i++) {
+            lists[i] = postings.get(trigram(value, i));
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect(result, lists[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Intersects two sorted lists of name codes.
+     *
+     * @param a name codes in ascending order.
+     * @param b name codes in ascending order.
+     * @return name codes in both lists.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Merges two sorted lists of name codes that have no code in common.
+     *
+     * @param a name codes in ascending order.
+     * @param b name codes in ascending order.
+     * @return name codes of both lists, in ascending order.
+     */
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            result[count++] = j == b.length || (i < a.length && a[i] < b[j]) ? a[i++] : b[j++];
+        }
+        return result;
+    }
+}
@@ -13,15 +13,13 @@ package student;
             return filteredGames;
         }
         // remove spaces
-        filter = filter.replaceAll(" ", "");
+        filter = CommandParser.compact(filter);
 
-        String[] parts = filter.split(operator.getOperator());
-        if (parts.length != 2) {
-            return filteredGames;
-        }
+        int at = filter.indexOf(operator.getOperator());
+        String value = filter.substring(at + operator.getOperator().length());
         GameData column;
         try {
-            column = GameData.fromString(parts[0]);
+            column = GameData.fromString(filter.substring(0, at));
         } catch (IllegalArgumentException e) {
             return filteredGames;
         }
@@ -0,0 +1,167 @@
+package student;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * How a planner splits its work across threads.
+ *
+ * Work on fewer rows than the threshold runs on the calling thread. Larger work is cut into
+ * chunks of row IDs (or of positions in a permutation), each chunk writes only its own slice of
+ * the result, and the chunks run in a fork-join pool. There is no shared mutable set, so the
+ * chunks never wait on each other.
+ */
+public final class Parallelism {
+    /** Default number of rows under which the work is not split. */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+    /** Chunks per thread, so a slow chunk does not leave the other threads idle. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** Everything runs on the calling thread. */
+    public static final Parallelism SEQUENTIAL = new Parallelism(null, Integer.MAX_VALUE);
+
+    /** The pool the chunks run in, null when sequential. */
+    private final ForkJoinPool pool;
+    /** Number of rows under which the work is not split. */
+    private final int threshold;
+
+    /**
+     * Constructor for the mode.
+     *
+     * @param pool the pool the chunks run in, null when sequential.
+     * @param threshold number of rows under which the work is not split.
+     */
+    private Parallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Runs the work in the common fork-join pool, split above the default threshold.
+     *
+     * @return the parallel mode.
+     */
+    public static Parallelism common() {
+        return of(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Runs the work in a pool, split above a threshold.
+     *
+     * @param pool the pool the chunks run in.
+     * @param threshold number of rows under which the work is not split, at least 1.
+     * @return the parallel mode.
+     * @throws IllegalArgumentException if the threshold is not positive.
+     */
+    public static Parallelism of(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Invalid parallel threshold " + threshold);
+        }
+        return new Parallelism(pool, threshold);
+    }
+
+    /**
+     * Check if work on a number of rows is split.
+     *
+     * @param rows number of rows in the work.
+     * @return true if the work runs in the pool.
+     */
+    boolean splits(int rows) {
+        return pool != null && rows >= threshold;
+    }
+
+    /**
+     * Get the number of rows under which the work is not split.
+     *
+     * @return the threshold.
+     */
+    int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Get the number of chunks to cut work on a number of rows into.
+     *
+     * @param rows number of rows in the work.
+     * @return 1 if the work is not split, otherwise a few chunks per thread of the pool, each
+     *         of them at least half the threshold.
+     */
+    int chunks(int rows) {
+        if (!splits(rows)) {
+            return 1;
+        }
+        long bySize = Math.max(1, 2L * rows / threshold);
+        return (int) Math.min(bySize, (long) pool.getParallelism() * CHUNKS_PER_THREAD);
+    }
+
+    /**
+     * Runs a task for each chunk, in the pool when there is more than one chunk, and returns
+     * when all of them are done.
+     *
+     * @param chunks number of chunks.
+     * @param task the task, called with the index of a chunk.
+     */
+    void forEachChunk(int chunks, IntConsumer task) {
+        if (chunks <= 1 || pool == null) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                task.accept(chunk);
+            }
+            return;
+        }
+        pool.invoke(new ChunkTask(task, 0, chunks));
+    }
+
+    /**
+     * Runs a fork-join action in the pool and waits for it.
+     *
+     * @param action the action.
+     */
+    void invoke(RecursiveAction action) {
+        if (pool == null) {
+            action.invoke();
+        } else {
+            pool.invoke(action);
+        }
+    }
+
+    /**
+     * Runs a range of chunks, splitting the range in halves until one chunk is left.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        /** Serial version, tasks are never serialized. */
+        private static final long serialVersionUID = 1L;
+        /** Task to run for each chunk. */
+        private final IntConsumer task;
+        /** First chunk, inclusive. */
+        private final int from;
+        /** Last chunk, exclusive. */
+        private final int to;
+
+        /**
+         * Constructor for the task.
+         *
+         * @param task task to run for each chunk.
+         * @param from first chunk, inclusive.
+         * @param to last chunk, exclusive.
+         */
+        ChunkTask(IntConsumer task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Runs the chunk, or the two halves of the range at the same time.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                task.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(task, from, mid), new ChunkTask(task, mid, to));
+        }
+    }
+}
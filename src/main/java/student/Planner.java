@@ -1,27 +1,84 @@
 package student;
 
 
-import java.util.Comparator;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.TreeSet;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class to handle the filter that user enters.
+ *
+ * A planner is one session on a Catalog. The games, their indexes and the result cache belong
+ * to the catalog and are shared by every session, the planner only keeps its progressive filter
+ * as a FilterChain, the bitmap of the last rows it read narrowed by the plans added since, with
+ * the plans applied since the last reset. The chain is evaluated only when results are read.
+ * Many planners can run on one catalog from different threads, but a planner itself is used by
+ * one thread at a time.
+ *
+ * When the catalog changes, the planner catches up before its next query: rows the deltas did
+ * not touch keep their place in the filter, and only the touched rows are checked against the
+ * plans in the history.
+ *
+ * Sorted results are cached, keyed by the version of the catalog, the clauses in effect (the
+ * filter is the AND of every clause since the last reset, so their order does not matter) and
+ * the sort.
  */
 public class Planner implements IPlanner {
-    /** Set contains all board games.*/
-    private Set<BoardGame> games;
-    /** Set contains filtered board games.*/
-    private Set<BoardGame> filteredGames;
+    /** Catalog the session runs on.*/
+    private final Catalog catalog;
+    /** Version of the catalog the filter is on.*/
+    private Catalog.Version version;
+    /** Columnar store that contains all board games, the store of the version.*/
+    private GameStore store;
+    /** Bitmap with all board games.*/
+    private RowSet allRows;
+    /** Filtered board games, evaluated when the results are read.*/
+    private FilterChain filtered;
+    /** Plans applied since the last reset, filtered is allRows filtered by all of them.*/
+    private final List<FilterPlan> history = new ArrayList<>();
+    /** Canonical keys of the clauses in history, sorted and without repeats.*/
+    private final Set<String> activeClauses = new TreeSet<>();
+    /** How filters and sorts split their work across threads.*/
+    private Parallelism parallelism = Parallelism.SEQUENTIAL;
+    /** The last filter with its sort, as a list.*/
+    private ResultView result;
+    /** Sort of the last filter, kept to rebuild the result when the catalog changes.*/
+    private SortSpec lastSort = SortSpec.DEFAULT;
 
     /**
      * Constructor for planners.
      * @param games Set contains all board games.
      */
     public Planner(Set<BoardGame> games) {
-        this.games = games;
-        this.filteredGames = games;
+        this(new GameStore(games));
+    }
+
+    /**
+     * Constructor for planners on a store that is already built, with a catalog of their own.
+     * @param store columnar store that contains all board games.
+     */
+    public Planner(GameStore store) {
+        this(new Catalog(store));
+    }
+
+    /**
+     * Constructor for a session on a shared catalog.
+     * @param catalog the catalog that contains all board games.
+     */
+    public Planner(Catalog catalog) {
+        this.catalog = catalog;
+        this.version = catalog.current();
+        this.store = version.store;
+        this.allRows = store.liveRows();
+        this.filtered = FilterChain.of(store, allRows);
+        this.result = view(filtered, SortSpec.DEFAULT, ResultCache.key(version.number,
+                activeClauses, SortSpec.DEFAULT));
     }
 
     /**
@@ -32,19 +89,7 @@ public class Planner implements IPlanner {
      */
     @Override
     public Stream<BoardGame> filter(String filter) {
-        Stream<BoardGame> stream = this.filteredGames.stream();
-
-        String[] separatedFilters = filter.split(",");
-        for (String separatedFilter : separatedFilters) {
-            separatedFilter = separatedFilter.trim();
-            stream = Planner.filterSingle(separatedFilter, stream);
-        }
-
-        this.filteredGames = stream.collect(Collectors.toSet());
-
-        return this.filteredGames.stream()
-                .sorted(Comparator.comparing(BoardGame::getName,
-                        String.CASE_INSENSITIVE_ORDER));
+        return filter(filter, GameData.NAME, true);
     }
 
     /**
@@ -56,17 +101,7 @@ public class Planner implements IPlanner {
      */
     @Override
     public Stream<BoardGame> filter(String filter, GameData sortOn) {
-
-        Stream<BoardGame> stream = this.filteredGames.stream();
-
-        String[] separatedFilters = filter.split(",");
-        for (String separatedFilter : separatedFilters) {
-            separatedFilter = separatedFilter.trim();
-            stream = Planner.filterSingle(separatedFilter, stream);
-        }
-
-        this.filteredGames = stream.collect(Collectors.toSet());
-        return applySorting(this.filteredGames.stream(), sortOn, true);
+        return filter(filter, sortOn, true);
     }
 
     /**
@@ -79,94 +114,314 @@ public class Planner implements IPlanner {
      */
     @Override
     public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
-        // TODO Auto-generated method stub
+        return filter(compile(filter), sortOn, ascending);
+    }
 
-        Stream<BoardGame> stream = this.filteredGames.stream();
+    /**
+     * Compiles the filter into a plan that can be reused.
+     * @param filter The filter to compile.
+     * @return the compiled plan.
+     */
+    @Override
+    public FilterPlan compile(String filter) {
+        return FilterCompiler.compile(filter);
+    }
 
-        String[] separatedFilters = filter.split(",");
-        for (String separatedFilter : separatedFilters) {
-            separatedFilter = separatedFilter.trim();
-            stream = Planner.filterSingle(separatedFilter, stream);
-        }
+    /**
+     * Filtered out the board games based on a compiled plan.
+     * Sorted on the targeted columns with order that user choose.
+     * @param plan The compiled filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending sort with ascending or descending order.
+     * @return filtered board games in stream with order and column passed in.
+     */
+    @Override
+    public Stream<BoardGame> filter(FilterPlan plan, GameData sortOn, boolean ascending) {
+        return filter(plan, SortSpec.of(sortOn, ascending));
+    }
 
-        this.filteredGames = stream.collect(Collectors.toSet());
+    /**
+     * Filtered out the board games based on the filter that is passed in.
+     * Sorted on the columns of a sort specification, ties on the game id.
+     * @param filter The filter to apply to the board games.
+     * @param sort the columns to sort on, with their directions.
+     * @return filtered board games in stream in the order of the spec.
+     */
+    @Override
+    public Stream<BoardGame> filter(String filter, SortSpec sort) {
+        return filter(compile(filter), sort);
+    }
+
+    /**
+     * Filtered out the board games based on a compiled plan.
+     * Sorted on the columns of a sort specification, ties on the game id.
+     *
+     * The filter is narrowed right away, but it is only evaluated and sorted when the stream is
+     * read, so filters that are narrowed again before their results are read cost nothing.
+     * @param plan The compiled filter to apply to the board games.
+     * @param sort the columns to sort on, with their directions.
+     * @return filtered board games in stream in the order of the spec.
+     */
+    @Override
+    public Stream<BoardGame> filter(FilterPlan plan, SortSpec sort) {
+        String key = record(plan, sort);
+        this.filtered = filtered.narrow(plan);
+        ResultView view = view(filtered, sort, key);
+        this.result = view;
+        return StreamSupport.stream(view::spliterator,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED, false);
+    }
 
-        return applySorting(this.filteredGames.stream(), sortOn, ascending);
+    /**
+     * Builds the list view of a filter, sorted the first time it is read.
+     * @param chain the filter.
+     * @param sort the columns to sort on, with their directions.
+     * @param key the result cache key of the filter and sort.
+     * @return the view.
+     */
+    private ResultView view(FilterChain chain, SortSpec sort, String key) {
+        return new ResultView(chain.getStore(), () -> sorted(chain, sort, key),
+                () -> chain.rows(parallelism).cardinality());
     }
 
     /**
-     * Helper function to process single filter on filteredGames stream.
-     * @param filter string that contain only one filter.
-     * @param filteredGames stream of Board Games.
-     * @return processed stream with single filter passed in.
+     * Get the result of the last filter, in its order, as a list with positional access. The
+     * sorted rows are worked out once, the first time the list is read, so adding games by
+     * position does not run the filter again.
+     * The result follows the catalog: after a delta from any session, it lists the games of the
+     * new version that pass the filter.
+     * @return the games of the last filter, the whole catalog by name after a reset.
      */
-    private static Stream<BoardGame> filterSingle(String filter, Stream<BoardGame> filteredGames) {
+    @Override
+    public List<BoardGame> getResult() {
+        catchUp();
+        return result;
+    }
 
-        // Get the operator if exists, otherwise, get the filteredGames stream. e.g. Operation.GREATER_THAN_EQUALS.
-        Operations operator = Operations.getOperatorFromStr(filter);
-        if (operator == null) {
-            return filteredGames;
+    /**
+     * Gets the sorted rows of a filter, from the result cache or by evaluating the filter.
+     * @param chain the filter.
+     * @param sort the columns to sort on, with their directions.
+     * @param key the result cache key of the filter and sort.
+     * @return the sorted row IDs.
+     */
+    private int[] sorted(FilterChain chain, SortSpec sort, String key) {
+        int[] rows = catalog.getResultCache().get(key);
+        if (rows != null) {
+            if (!chain.isEvaluated()) {
+                chain.setRows(RowSet.of(chain.getStore().size(), rows));
+            }
+            return rows;
         }
+        rows = new RowOrder(chain.getStore(), sort).sort(chain.rows(parallelism), parallelism);
+        catalog.getResultCache().put(key, rows);
+        return rows;
+    }
 
-        filter = filter.trim();
-        String[] parts = filter.split(operator.getOperator());
-        for (int i = 0; i < parts.length; i++) {
-            parts[i] = parts[i].trim();
+    /**
+     * Filtered out the board games based on the filter that is passed in, and returns one page
+     * of the sorted result.
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending sort with ascending or descending order.
+     * @param offset position of the first game of the page.
+     * @param limit largest number of games in the page.
+     * @return the page of filtered board games.
+     */
+    @Override
+    public ResultPage filter(String filter, GameData sortOn, boolean ascending, int offset,
+            int limit) {
+        return filter(compile(filter), SortSpec.of(sortOn, ascending), offset, limit);
+    }
+
+    /**
+     * Filtered out the board games based on a compiled plan, and returns one page of the sorted
+     * result.
+     * @param plan The compiled filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending sort with ascending or descending order.
+     * @param offset position of the first game of the page.
+     * @param limit largest number of games in the page.
+     * @return the page of filtered board games.
+     */
+    @Override
+    public ResultPage filter(FilterPlan plan, GameData sortOn, boolean ascending, int offset,
+            int limit) {
+        return filter(plan, SortSpec.of(sortOn, ascending), offset, limit);
+    }
+
+    /**
+     * Filtered out the board games based on a compiled plan, and returns one page of the
+     * result sorted on a sort specification.
+     *
+     * Only the first offset + limit games are kept while the filtered rows are read, in a
+     * bounded heap, so the whole result is not sorted. If the whole sorted result is already in
+     * the result cache, the page is a slice of it.
+     * @param plan The compiled filter to apply to the board games.
+     * @param sort the columns to sort on, with their directions.
+     * @param offset position of the first game of the page.
+     * @param limit largest number of games in the page.
+     * @return the page of filtered board games.
+     */
+    @Override
+    public ResultPage filter(FilterPlan plan, SortSpec sort, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page " + offset + ", " + limit);
+        }
+        String key = record(plan, sort);
+        RowOrder order = new RowOrder(store, sort);
+        this.filtered = filtered.narrow(plan);
+        this.result = view(filtered, sort, key);
+        int[] rows = catalog.getResultCache().get(key);
+        if (rows != null) {
+            if (!filtered.isEvaluated()) {
+                filtered.setRows(RowSet.of(store.size(), rows));
+            }
+            int from = Math.min(offset, rows.length);
+            int to = (int) Math.min((long) from + limit, rows.length);
+            return new ResultPage(Arrays.copyOfRange(rows, from, to), offset, rows.length, order);
         }
+        RowSet filteredRows = filtered.rows(parallelism);
+        return new ResultPage(order.top(filteredRows, -1, offset, limit, parallelism), offset,
+                filteredRows.cardinality(), order);
+    }
 
-        if (parts.length != 2) {
-            return filteredGames;
+    /**
+     * Gets the page after a page, from the current filter.
+     *
+     * The page continues after the last game of the previous page, in the same order, so it
+     * costs the same as the first page. If the catalog changed since, it continues from the
+     * same position instead.
+     * @param page the previous page.
+     * @param limit largest number of games in the page.
+     * @return the next page of filtered board games.
+     */
+    @Override
+    public ResultPage nextPage(ResultPage page, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Invalid page size " + limit);
+        }
+        catchUp();
+        RowSet filteredRows = filtered.rows(parallelism);
+        RowOrder order = page.getOrder();
+        int offset = page.getOffset() + page.getGames().size();
+        if (order.getStore() != store || page.getLastRow() < 0) {
+            order = new RowOrder(store, order.getSpec());
+            return new ResultPage(order.top(filteredRows, -1, offset, limit, parallelism),
+                    offset, filteredRows.cardinality(), order);
         }
+        return new ResultPage(order.top(filteredRows, page.getLastRow(), 0, limit, parallelism),
+                offset, filteredRows.cardinality(), order);
+    }
 
-        GameData column;
-        try {
-            column = GameData.fromString(parts[0]);
-        } catch (IllegalArgumentException e) {
-            return filteredGames;
+    /**
+     * Adds a plan to the history of the current filter.
+     * @param plan the plan being applied.
+     * @param sort the sort of the result.
+     * @return the result cache key of the filter with the plan.
+     */
+    private String record(FilterPlan plan, SortSpec sort) {
+        catchUp();
+        this.lastSort = sort;
+        for (FilterClause clause : plan.getClauses()) {
+            this.activeClauses.add(clause.getKey());
+        }
+        if (!plan.isEmpty()) {
+            this.history.add(plan);
         }
+        return ResultCache.key(version.number, activeClauses, sort);
+    }
 
-        String value;
-        try {
-            value = parts[1].trim().toLowerCase();
-        } catch (IllegalArgumentException e) {
-            return filteredGames;
+    /**
+     * Moves the filter to the latest version of the catalog.
+     *
+     * The rows touched by every delta since the version of the filter are gathered, the other
+     * rows keep their place in the filter, and the touched ones are checked against the plans
+     * applied since the last reset.
+     */
+    private void catchUp() {
+        Catalog.Version latest = catalog.current();
+        if (latest == version) {
+            return;
         }
+        RowSet touched = null;
+        for (Catalog.Version next = version.next; ; next = next.next) {
+            touched = touched == null ? next.touched
+                    : touched.resize(next.store.size()).or(next.touched);
+            if (next == latest) {
+                break;
+            }
+        }
+        this.version = latest;
+        this.store = latest.store;
+        this.allRows = store.liveRows();
 
-        Stream<BoardGame> filteredGamesList = filteredGames
-                .filter(game -> Filters.filter(game, column, operator, value));
+        RowSet recheck = touched.and(allRows);
+        for (FilterPlan plan : history) {
+            recheck = plan.apply(store, recheck, parallelism);
+        }
+        RowSet kept = filtered.rows(parallelism).resize(store.size()).andNot(touched);
+        this.filtered = FilterChain.of(store, kept.or(recheck));
+        this.result = view(filtered, lastSort, ResultCache.key(version.number, activeClauses,
+                lastSort));
+    }
 
-        return filteredGamesList;
+    /**
+     * Get the cache of sorted results, for its hit and miss counters.
+     * @return the result cache of the catalog.
+     */
+    public ResultCache getResultCache() {
+        return catalog.getResultCache();
     }
 
     /**
-     * Helper function to apply sorting on filtered stream.
-     * @param filteredGames filtered game stream.
-     * @param sortOn columns to sort on.
-     * @param ascending whether sort by ascending or descending order.
-     * @return filtered and ordered game stream.
+     * Applies a change to the catalog, keeping the current filter.
+     *
+     * Rows the delta did not touch keep their place in the filter, and only the touched rows are
+     * checked against the plans applied since the last reset. The cached results are dropped,
+     * and the other sessions on the catalog see the change on their next query.
+     * @param delta the games to add, replace or remove.
      */
-    private Stream<BoardGame> applySorting(Stream<BoardGame> filteredGames, GameData sortOn, boolean ascending) {
-        Comparator<BoardGame> comparator = switch (sortOn) {
-            case NAME -> Comparator.comparing(game -> game.getName().toLowerCase(), String.CASE_INSENSITIVE_ORDER);
-            case MAX_PLAYERS -> Comparator.comparingInt(BoardGame::getMaxPlayers);
-            case MIN_PLAYERS -> Comparator.comparingInt(BoardGame::getMinPlayers);
-            case MAX_TIME -> Comparator.comparingInt(BoardGame::getMaxPlayTime);
-            case MIN_TIME -> Comparator.comparingInt(BoardGame::getMinPlayTime);
-            case RANK -> Comparator.comparingInt(BoardGame::getRank);
-            case DIFFICULTY -> Comparator.comparingDouble(BoardGame::getDifficulty);
-            case YEAR -> Comparator.comparingInt(BoardGame::getYearPublished);
-            default -> null;
-        };
+    public void applyDelta(CatalogDelta delta) {
+        catalog.applyDelta(delta);
+        catchUp();
+    }
 
-        if (comparator != null) {
-            if (!ascending) {
-                comparator = comparator.reversed();
-                return filteredGames.sorted(comparator);
-            }
-            return filteredGames.sorted(comparator);
-        }
+    /**
+     * Reloads the catalog from a csv file on disk, applying only the differences with the
+     * current catalog and keeping the current filter.
+     * @param file the csv file with the whole catalog.
+     * @return the changes that were applied.
+     */
+    public CatalogDelta reload(Path file) {
+        CatalogDelta delta = catalog.reload(file);
+        catchUp();
+        return delta;
+    }
+
+    /**
+     * Sets how filters and sorts split their work across threads. Results are the same in
+     * every mode, only large catalogs run faster in parallel.
+     * @param parallelism the mode, Parallelism.SEQUENTIAL by default.
+     */
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism;
+    }
 
-        return filteredGames;
+    /**
+     * Get the catalog the session runs on.
+     * @return the catalog.
+     */
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Get the store the planner is running on.
+     * @return the current store.
+     */
+    GameStore getStore() {
+        return store;
     }
 
     /**
@@ -174,6 +429,12 @@ public class Planner implements IPlanner {
      */
     @Override
     public void reset() {
-        this.filteredGames = this.games;
+        catchUp();
+        this.filtered = FilterChain.of(store, allRows);
+        this.history.clear();
+        this.activeClauses.clear();
+        this.lastSort = SortSpec.DEFAULT;
+        this.result = view(filtered, SortSpec.DEFAULT, ResultCache.key(version.number,
+                activeClauses, SortSpec.DEFAULT));
     }
 }
@@ -0,0 +1,612 @@
+package student;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An HTTP server that answers filter and game list requests with JSON, for a web front end.
+ *
+ * Every session has its own progressive filter (a Planner) and game list, and all the sessions
+ * share one loaded Catalog through a SessionManager, so a new user costs a few small objects and
+ * not a copy of the games, and sessions left idle are evicted. Requests of different sessions
+ * run at the same time, requests of one session run one after the other. Requests are handled on
+ * virtual threads when the JVM has them (Java 21 and later), and on a cached thread pool
+ * otherwise.
+ *
+ * The endpoints are:
+ * <pre>
+ * POST   /sessions                      starts a session, {"session": id}
+ * DELETE /sessions/{id}                 ends a session
+ * POST   /sessions/{id}/games           narrows the filter of the session and gets the first
+ *                                       page, params filter, sort, offset, limit
+ * GET    /sessions/{id}/games           reads a page of the current result without changing
+ *                                       the session, params offset, limit
+ * POST   /sessions/{id}/reset           clears the filter of the session
+ * GET    /sessions/{id}/list            names in the game list
+ * POST   /sessions/{id}/list            adds to the list from the last filter, param add, or
+ *                                       removes from it, param remove
+ * DELETE /sessions/{id}/list            clears the list
+ * </pre>
+ * The filter and sort use the same format as the console, for example
+ * {@code filter=minplayers>2,name~=go&sort=rating:desc}. Only POST changes a session, so a
+ * retried or prefetched GET never narrows the filter. Responses are written as they are built
+ * with chunked encoding, and errors are {"error": message} with a 4xx status.
+ */
+public final class PlannerServer {
+    /** Default port of the server. */
+    public static final int DEFAULT_PORT = 8080;
+    /** Games in a page when the request does not give a limit. */
+    public static final int DEFAULT_LIMIT = 20;
+    /** Largest number of games in a page. */
+    public static final int MAX_LIMIT = 1000;
+    /** Connections waiting to be accepted before new ones are refused. */
+    private static final int BACKLOG = 1024;
+    /** Size of the buffer responses are written through. */
+    private static final int BUFFER_SIZE = 8192;
+    /** Root path of the sessions. */
+    private static final String SESSIONS = "/sessions";
+    /** Property of the JDK server that turns off Nagle's algorithm on its sockets. */
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    /** option to set the port of the server. */
+    private static final String PORT_OPTION = "--port";
+
+    /** The sessions, on the catalog they share. */
+    private final SessionManager sessions;
+    /** The HTTP server, null until started. */
+    private HttpServer server;
+    /** Runs the requests, null until started. */
+    private ExecutorService executor;
+
+    /**
+     * Constructor for the server.
+     *
+     * @param catalog the catalog shared by every session.
+     * @param parallelism how the planner of each session splits its work.
+     */
+    public PlannerServer(Catalog catalog, Parallelism parallelism) {
+        this(new SessionManager(catalog, parallelism, SessionManager.DEFAULT_IDLE_TIMEOUT));
+    }
+
+    /**
+     * Constructor for the server on sessions managed elsewhere.
+     *
+     * @param sessions the sessions, closed when the server stops.
+     */
+    public PlannerServer(SessionManager sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Entry point of the server. Takes the same collection options as BGArenaPlanner, and
+     * {@code --port <port>} to listen on another port than 8080.
+     *
+     * @param args command line arguments.
+     * @throws IOException if the port cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        GameStore store = BGArenaPlanner.loadCollection(args);
+        String port = BGArenaPlanner.optionValue(args, PORT_OPTION);
+        Parallelism parallelism = BGArenaPlanner.isParallel(args)
+                ? Parallelism.common() : Parallelism.SEQUENTIAL;
+        PlannerServer server = new PlannerServer(new Catalog(store), parallelism);
+        server.start(port == null ? DEFAULT_PORT : Integer.parseInt(port));
+        System.out.println("Serving " + store.size() + " games on port " + server.getPort());
+    }
+
+    /**
+     * Starts listening for requests.
+     *
+     * @param port the port to listen on, 0 for any free port.
+     * @throws IOException if the port cannot be opened.
+     */
+    public synchronized void start(int port) throws IOException {
+        // without it the last chunk of a response waits for the client's delayed ACK, about
+        // 40 ms, which caps a keep-alive connection at a few dozen requests per second.
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = SessionManager.newExecutor();
+        server.setExecutor(executor);
+        server.createContext(SESSIONS, this::handle);
+        server.start();
+    }
+
+    /**
+     * Stops the server and closes its sessions, without waiting for the requests being handled.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+        sessions.close();
+    }
+
+    /**
+     * Get the port the server listens on.
+     *
+     * @return the port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Get the number of open sessions.
+     *
+     * @return the number of sessions.
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Handles a request, answering errors with their status.
+     *
+     * @param exchange the request and its response.
+     */
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            drain(exchange.getRequestBody());
+            try {
+                route(exchange);
+            } catch (HttpError e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            }
+        } catch (IOException e) {
+            // the client went away, nothing left to answer.
+        }
+    }
+
+    /**
+     * Finds the endpoint of a request and runs it.
+     *
+     * @param exchange the request and its response.
+     * @throws IOException if the response cannot be written.
+     */
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.substring(SESSIONS.length());
+        if (!rest.isEmpty() && rest.charAt(0) != '/') {
+            throw new HttpError(404, "Unknown path " + path);
+        }
+        String[] parts = rest.split("/");
+        // parts[0] is empty, the rest starts with a slash after /sessions
+        if (parts.length <= 1) {
+            expect(method, "POST");
+            String id = sessions.open().getId();
+            try (Writer out = open(exchange, 201)) {
+                out.append("{\"session\":");
+                appendString(out, id);
+                out.append('}');
+            }
+            return;
+        }
+        String id = parts[1];
+        PlannerSession session = sessions.get(id);
+        if (session == null) {
+            throw new HttpError(404, "Unknown session " + id);
+        }
+        String action = parts.length > 2 ? parts[2] : "";
+        Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+        switch (action) {
+            case "":
+                expect(method, "DELETE");
+                sessions.close(id);
+                sendEmpty(exchange);
+                break;
+            case "games":
+                if ("POST".equals(method)) {
+                    ResultPage page = filter(session, params);
+                    sendPage(exchange, page.getOffset(), page.getTotal(), page.getGames());
+                } else {
+                    expect(method, "GET");
+                    sendResult(exchange, session, params);
+                }
+                break;
+            case "reset":
+                expect(method, "POST");
+                reset(session);
+                sendEmpty(exchange);
+                break;
+            case "list":
+                if ("DELETE".equals(method)) {
+                    clearList(session);
+                } else if ("POST".equals(method)) {
+                    changeList(session, params);
+                } else {
+                    expect(method, "GET");
+                }
+                sendList(exchange, listNames(session));
+                break;
+            default:
+                throw new HttpError(404, "Unknown path " + path);
+        }
+    }
+
+    /**
+     * Checks the method of a request.
+     *
+     * @param method the method of the request.
+     * @param expected the method the endpoint takes.
+     * @throws HttpError if the methods are not the same.
+     */
+    private static void expect(String method, String expected) {
+        if (!expected.equals(method)) {
+            throw new HttpError(405, "Use " + expected);
+        }
+    }
+
+    /**
+     * Reads the parameters of a query string.
+     *
+     * @param query the raw query, may be null.
+     * @return the decoded parameters by name.
+     */
+    static Map<String, String> params(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            int equals = query.indexOf('=', start);
+            if (equals < 0 || equals > end) {
+                equals = end;
+            }
+            if (equals > start) {
+                String value = equals < end ? query.substring(equals + 1, end) : "";
+                String name = query.substring(start, equals);
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
+    /**
+     * Reads a whole number parameter.
+     *
+     * @param params the parameters.
+     * @param name the name of the parameter.
+     * @param fallback value when the parameter is not given.
+     * @return the value.
+     * @throws IllegalArgumentException if the value is not a number.
+     */
+    private static int intParam(Map<String, String> params, String name, int fallback) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    /**
+     * Reads what is left of a request body, so the connection can be kept alive.
+     *
+     * @param body the request body.
+     * @throws IOException if the body cannot be read.
+     */
+    private static void drain(InputStream body) throws IOException {
+        byte[] skip = new byte[BUFFER_SIZE];
+        while (body.read(skip) >= 0) {
+            continue;
+        }
+    }
+
+    /**
+     * Sends the headers of a JSON response and opens its body, written in chunks.
+     *
+     * @param exchange the request and its response.
+     * @param status the HTTP status.
+     * @return the buffered body, to close once written.
+     * @throws IOException if the headers cannot be sent.
+     */
+    private static Writer open(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Sends a response without a body.
+     *
+     * @param exchange the request and its response.
+     * @throws IOException if the response cannot be sent.
+     */
+    private static void sendEmpty(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /**
+     * Sends an error.
+     *
+     * @param exchange the request and its response.
+     * @param status the HTTP status.
+     * @param message what went wrong.
+     * @throws IOException if the response cannot be sent.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message)
+            throws IOException {
+        try (Writer out = open(exchange, status)) {
+            out.append("{\"error\":");
+            appendString(out, message == null ? "" : message);
+            out.append('}');
+        }
+    }
+
+    /**
+     * Sends a page of the current result of a session, in the order it was last sorted in,
+     * without changing the session.
+     *
+     * @param exchange the request and its response.
+     * @param session the session.
+     * @param params offset and limit, both optional.
+     * @throws IOException if the response cannot be sent.
+     * @throws IllegalArgumentException if a parameter is not valid, or a filter or sort is
+     *                                  given as those change the session.
+     */
+    private static void sendResult(HttpExchange exchange, PlannerSession session,
+            Map<String, String> params) throws IOException {
+        if (params.containsKey("filter") || params.containsKey("sort")) {
+            throw new IllegalArgumentException("Use POST to filter or sort");
+        }
+        int offset = intParam(params, "offset", 0);
+        int limit = Math.min(intParam(params, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page " + offset + ", " + limit);
+        }
+        List<BoardGame> games;
+        int total;
+        synchronized (session) {
+            List<BoardGame> result = session.getPlanner().getResult();
+            total = result.size();
+            int from = Math.min(offset, total);
+            games = List.copyOf(result.subList(from, Math.min(total, from + limit)));
+        }
+        sendPage(exchange, offset, total, games);
+    }
+
+    /**
+     * Sends a page of games.
+     *
+     * @param exchange the request and its response.
+     * @param offset position of the first game of the page in the whole result.
+     * @param total number of games in the whole result.
+     * @param games games of the page, in order.
+     * @throws IOException if the response cannot be sent.
+     */
+    private static void sendPage(HttpExchange exchange, int offset, int total,
+            List<BoardGame> games) throws IOException {
+        try (Writer out = open(exchange, 200)) {
+            out.append("{\"offset\":").append(Integer.toString(offset))
+                    .append(",\"total\":").append(Integer.toString(total))
+                    .append(",\"hasNext\":").append(Boolean.toString(offset + games.size() < total))
+                    .append(",\"games\":[");
+            boolean first = true;
+            for (BoardGame game : games) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendGame(out, game);
+            }
+            out.append("]}");
+        }
+    }
+
+    /**
+     * Sends the names of a game list.
+     *
+     * @param exchange the request and its response.
+     * @param names the names, in the order of the list.
+     * @throws IOException if the response cannot be sent.
+     */
+    private static void sendList(HttpExchange exchange, List<String> names) throws IOException {
+        try (Writer out = open(exchange, 200)) {
+            out.append("{\"count\":").append(Integer.toString(names.size()))
+                    .append(",\"games\":[");
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendString(out, names.get(i));
+            }
+            out.append("]}");
+        }
+    }
+
+    /**
+     * Writes a game as a JSON object, the keys being the column names of GameData.
+     *
+     * @param out where to write.
+     * @param game the game.
+     * @throws IOException if it cannot be written.
+     */
+    static void appendGame(Appendable out, BoardGame game) throws IOException {
+        out.append("{\"").append(GameData.NAME.getColumnName()).append("\":");
+        appendString(out, game.getName());
+        appendField(out, GameData.ID, Integer.toString(game.getId()));
+        appendField(out, GameData.RATING, number(game.getRating()));
+        appendField(out, GameData.DIFFICULTY, number(game.getDifficulty()));
+        appendField(out, GameData.RANK, Integer.toString(game.getRank()));
+        appendField(out, GameData.MIN_PLAYERS, Integer.toString(game.getMinPlayers()));
+        appendField(out, GameData.MAX_PLAYERS, Integer.toString(game.getMaxPlayers()));
+        appendField(out, GameData.MIN_TIME, Integer.toString(game.getMinPlayTime()));
+        appendField(out, GameData.MAX_TIME, Integer.toString(game.getMaxPlayTime()));
+        appendField(out, GameData.YEAR, Integer.toString(game.getYearPublished()));
+        out.append('}');
+    }
+
+    /**
+     * Writes a number field of a JSON object, after the first field.
+     *
+     * @param out where to write.
+     * @param column the column, its name is the key.
+     * @param value the value, already a JSON number.
+     * @throws IOException if it cannot be written.
+     */
+    private static void appendField(Appendable out, GameData column, String value)
+            throws IOException {
+        out.append(",\"").append(column.getColumnName()).append("\":").append(value);
+    }
+
+    /**
+     * Formats a decimal as a JSON number.
+     *
+     * @param value the value.
+     * @return the number, null if it is not finite as JSON has no NaN.
+     */
+    private static String number(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+
+    /**
+     * Writes a JSON string, escaping quotes, backslashes and control characters.
+     *
+     * @param out where to write.
+     * @param text the text.
+     * @throws IOException if it cannot be written.
+     */
+    static void appendString(Appendable out, String text) throws IOException {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append("\\u00").append(Character.forDigit(c >> 4, 16))
+                        .append(Character.forDigit(c & 0xF, 16));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Narrows the filter of a session and gets a page of the result.
+     *
+     * @param session the session.
+     * @param params filter, sort, offset and limit, all optional.
+     * @return the page.
+     * @throws IllegalArgumentException if a parameter is not valid.
+     */
+    private static ResultPage filter(PlannerSession session, Map<String, String> params) {
+        String filter = CommandParser.compact(params.getOrDefault("filter", ""));
+        String sort = params.get("sort");
+        SortSpec spec = sort == null || sort.isBlank()
+                ? SortSpec.DEFAULT : SortSpec.parse(CommandParser.compact(sort));
+        int offset = intParam(params, "offset", 0);
+        int limit = Math.min(intParam(params, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+        synchronized (session) {
+            Planner planner = session.getPlanner();
+            return planner.filter(planner.compile(filter), spec, offset, limit);
+        }
+    }
+
+    /**
+     * Clears the filter of a session.
+     *
+     * @param session the session.
+     */
+    private static void reset(PlannerSession session) {
+        synchronized (session) {
+            session.getPlanner().reset();
+        }
+    }
+
+    /**
+     * Adds to or removes from the game list of a session, adding from the result of the last
+     * filter.
+     *
+     * @param session the session.
+     * @param params add or remove, with a name, a range spec or all.
+     * @throws IllegalArgumentException if neither is given or the spec is not valid.
+     */
+    private static void changeList(PlannerSession session, Map<String, String> params) {
+        String add = params.get("add");
+        String remove = params.get("remove");
+        if (add == null && remove == null) {
+            throw new IllegalArgumentException("Give add or remove");
+        }
+        synchronized (session) {
+            if (add != null) {
+                session.getGameList().addToList(add.trim(), session.getPlanner().getResult());
+            } else {
+                session.getGameList().removeFromList(remove.trim());
+            }
+        }
+    }
+
+    /**
+     * Clears the game list of a session.
+     *
+     * @param session the session.
+     */
+    private static void clearList(PlannerSession session) {
+        synchronized (session) {
+            session.getGameList().clear();
+        }
+    }
+
+    /**
+     * Get the names in the game list of a session.
+     *
+     * @param session the session.
+     * @return a copy of the names, in order.
+     */
+    private static List<String> listNames(PlannerSession session) {
+        synchronized (session) {
+            return List.copyOf(session.getGameList().getGameNames());
+        }
+    }
+
+    /**
+     * An error answered with an HTTP status.
+     */
+    private static final class HttpError extends RuntimeException {
+        /** Serial version, not serialized. */
+        private static final long serialVersionUID = 1L;
+        /** The HTTP status. */
+        private final int status;
+
+        /**
+         * Constructor for the error.
+         *
+         * @param status the HTTP status.
+         * @param message what went wrong.
+         */
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
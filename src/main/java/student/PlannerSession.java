@@ -0,0 +1,128 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * One user of a SessionManager, with their own progressive filter and game list on the shared
+ * catalog.
+ *
+ * A session that was never filtered only holds references to the catalog's rows, so an idle
+ * session costs a few small objects. A session is not safe to use from several threads at the
+ * same time, callers that share one synchronize on it.
+ */
+public final class PlannerSession {
+    /** The ID of the session. */
+    private final String id;
+    /** The progressive filter of the session. */
+    private final Planner planner;
+    /** The game list of the session. */
+    private final IGameList gameList = new GameList();
+    /** Time of the last use, from System.nanoTime. */
+    private volatile long lastUsed = System.nanoTime();
+    /** Closes what the session runs on, a console or a socket, null if nothing. */
+    private volatile Closeable resource;
+    /** True once the session is closed. */
+    private volatile boolean closed;
+
+    /**
+     * Constructor for the session.
+     *
+     * @param id the ID of the session.
+     * @param planner the progressive filter of the session.
+     */
+    PlannerSession(String id, Planner planner) {
+        this.id = id;
+        this.planner = planner;
+    }
+
+    /**
+     * Get the ID of the session.
+     *
+     * @return the ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the progressive filter of the session.
+     *
+     * @return the planner.
+     */
+    public Planner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Get the game list of the session.
+     *
+     * @return the game list.
+     */
+    public IGameList getGameList() {
+        return gameList;
+    }
+
+    /**
+     * Marks the session as used now, so it is not evicted.
+     */
+    public void touch() {
+        lastUsed = System.nanoTime();
+    }
+
+    /**
+     * Get the time of the last use.
+     *
+     * @return the time, from System.nanoTime.
+     */
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Check if the session is closed.
+     *
+     * @return true once closed or evicted.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Sets what the session runs on, closed with the session.
+     *
+     * @param resource the console or socket of the session.
+     */
+    void setResource(Closeable resource) {
+        this.resource = resource;
+        if (closed) {
+            closeResource();
+        }
+    }
+
+    /**
+     * Closes the session and what it runs on. Closing twice does nothing.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeResource();
+    }
+
+    /**
+     * Closes what the session runs on, if anything.
+     */
+    private void closeResource() {
+        Closeable open = resource;
+        resource = null;
+        if (open != null) {
+            try {
+                open.close();
+            } catch (IOException e) {
+                // already gone, nothing else to release.
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package student;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of sorted filter results, keyed by the canonical form of the query.
+ *
+ * Entries are the sorted row IDs of a result, weighted by their number of rows. When the total
+ * weight goes over the limit, the least recently used entries are evicted. The methods are
+ * synchronized, so a cache can be shared by the sessions on a catalog.
+ */
+public final class ResultCache {
+    /** Weight added to every entry, so empty results are not free. */
+    private static final int ENTRY_OVERHEAD = 16;
+
+    /** Largest total weight kept. */
+    private final long maxWeight;
+    /** Cached results, in access order. */
+    private final Map<String, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Total weight of the entries. */
+    private long weight;
+    /** Number of lookups that found a result. */
+    private long hits;
+    /** Number of lookups that did not. */
+    private long misses;
+    /** Number of entries evicted to stay under the limit. */
+    private long evictions;
+
+    /**
+     * Constructor for the cache.
+     *
+     * @param maxWeight largest total weight kept, about the number of row IDs.
+     */
+    public ResultCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Builds the key of a query.
+     *
+     * @param version number of the catalog version the query ran on.
+     * @param clauses canonical clauses of the query, sorted and without repeats.
+     * @param sort the sort of the result.
+     * @return the key.
+     */
+    static String key(long version, Iterable<String> clauses, SortSpec sort) {
+        return version + "#" + String.join(",", clauses) + "|" + sort;
+    }
+
+    /**
+     * Looks up a result, counting the hit or the miss.
+     *
+     * @param key the key of the query.
+     * @return the sorted row IDs, shared so do not modify them, or null if not cached.
+     */
+    synchronized int[] get(String key) {
+        int[] rows = entries.get(key);
+        if (rows == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return rows;
+    }
+
+    /**
+     * Adds a result, evicting the least recently used ones if the cache is over its limit.
+     * A result heavier than the whole limit is not kept.
+     *
+     * @param key the key of the query.
+     * @param rows the sorted row IDs, owned by the cache from now on.
+     */
+    synchronized void put(String key, int[] rows) {
+        long entryWeight = weightOf(rows);
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        int[] previous = entries.put(key, rows);
+        weight += entryWeight - (previous == null ? 0 : weightOf(previous));
+        Iterator<int[]> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= weightOf(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes every entry, the counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Get the weight of a result.
+     *
+     * @param rows the row IDs.
+     * @return the weight.
+     */
+    private static long weightOf(int[] rows) {
+        return rows.length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Get the number of lookups that found a result.
+     *
+     * @return the hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not find a result.
+     *
+     * @return the miss count.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of entries evicted to stay under the weight limit.
+     *
+     * @return the eviction count.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of cached results.
+     *
+     * @return the entry count.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the total weight of the cached results.
+     *
+     * @return the weight.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,95 @@
+package student;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * One page of a sorted filter result, with what is needed to ask for the next one.
+ *
+ * Pages are built by Planner.filter with an offset and a limit, and continued with
+ * Planner.nextPage, which picks up after the last game of the page instead of counting rows
+ * from the start again.
+ */
+public final class ResultPage {
+    /** Games of the page, in order. */
+    private final List<BoardGame> games;
+    /** Position of the first game of the page in the whole result. */
+    private final int offset;
+    /** Number of games in the whole result. */
+    private final int total;
+    /** Order the result is sorted in. */
+    private final RowOrder order;
+    /** Row of the last game of the page, -1 if the page is empty. */
+    private final int lastRow;
+
+    /**
+     * Constructor for the page.
+     *
+     * @param rows rows of the page, in order.
+     * @param offset position of the first row in the whole result.
+     * @param total number of rows in the whole result.
+     * @param order order the result is sorted in.
+     */
+    ResultPage(int[] rows, int offset, int total, RowOrder order) {
+        GameStore store = order.getStore();
+        this.games = IntStream.of(rows).mapToObj(store::getGame).toList();
+        this.offset = offset;
+        this.total = total;
+        this.order = order;
+        this.lastRow = rows.length == 0 ? -1 : rows[rows.length - 1];
+    }
+
+    /**
+     * Get the games of the page.
+     *
+     * @return unmodifiable list of games, in order.
+     */
+    public List<BoardGame> getGames() {
+        return games;
+    }
+
+    /**
+     * Get the position of the first game of the page in the whole result.
+     *
+     * @return the offset, starting at 0.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the number of games in the whole result.
+     *
+     * @return the total.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Check if there are games after this page.
+     *
+     * @return true if the result goes on after the page.
+     */
+    public boolean hasNext() {
+        return offset + games.size() < total;
+    }
+
+    /**
+     * Get the order the result is sorted in.
+     *
+     * @return the order.
+     */
+    RowOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Get the row of the last game of the page.
+     *
+     * @return the row, -1 if the page is empty.
+     */
+    int getLastRow() {
+        return lastRow;
+    }
+}
@@ -0,0 +1,77 @@
+package student;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The sorted result of a filter as a read only list, with positional access.
+ *
+ * The view keeps the sorted row IDs of the result and builds the game of a position when it is
+ * asked for, so getting games 1 to 5000 of a result costs 5000 lookups and not a pass of the
+ * filter and the sort. The rows are only worked out the first time the view is read, from the
+ * result cache when they are in it, and then kept. The size alone is counted without sorting.
+ */
+public final class ResultView extends AbstractList<BoardGame> implements RandomAccess {
+    /** The store the rows belong to. */
+    private final GameStore store;
+    /** Works out the sorted row IDs, null once they are known. */
+    private Supplier<int[]> source;
+    /** Counts the rows without sorting them. */
+    private final IntSupplier count;
+    /** The sorted row IDs, null until the view is read. */
+    private int[] rows;
+
+    /**
+     * Constructor for the view.
+     *
+     * @param store the store the rows belong to.
+     * @param source works out the sorted row IDs, called once.
+     * @param count counts the rows without sorting them.
+     */
+    ResultView(GameStore store, Supplier<int[]> source, IntSupplier count) {
+        this.store = store;
+        this.source = source;
+        this.count = count;
+    }
+
+    /**
+     * Get the sorted row IDs, working them out the first time.
+     *
+     * @return the row IDs, shared so do not modify them.
+     */
+    int[] rows() {
+        if (rows == null) {
+            rows = source.get();
+            source = null;
+        }
+        return rows;
+    }
+
+    /**
+     * Get the game at a position of the result.
+     *
+     * @param index the position, starting at 0.
+     * @return the game.
+     * @throws IndexOutOfBoundsException if the position is not in the result.
+     */
+    @Override
+    public BoardGame get(int index) {
+        int[] sorted = rows();
+        if (index < 0 || index >= sorted.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + sorted.length);
+        }
+        return store.getGame(sorted[index]);
+    }
+
+    /**
+     * Get the number of games in the result.
+     *
+     * @return the size of the result.
+     */
+    @Override
+    public int size() {
+        return rows != null ? rows.length : count.getAsInt();
+    }
+}
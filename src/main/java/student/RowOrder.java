@@ -0,0 +1,691 @@
+package student;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The order of the rows of a store when sorted on a SortSpec.
+ *
+ * Rows are compared on each column of the spec in its direction, then on the game id, then on
+ * the row ID, so the order is total and does not depend on how the games were loaded. The
+ * comparison reads the primitive columns directly and sorting uses a merge sort on the row IDs,
+ * so nothing is allocated per comparison.
+ *
+ * When the store is indexed, the rows of the store are already sorted on each column (ties on
+ * the id), so sorted results come from walking the permutation of the first column and keeping
+ * the rows in the result. Descending results walk it backwards, one run of equal values at a
+ * time so ties stay in id order, and with more than one column each run is sorted on the other
+ * columns. Small results are sorted instead, as the walk visits every row of the store.
+ */
+final class RowOrder {
+    /** Walk the permutation to sort when the result has at least 1 in this many rows. */
+    private static final int WALK_RATIO = 64;
+    /** Slices of the merge sort up to this size are sorted by insertion. */
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    /** The store the rows belong to. */
+    private final GameStore store;
+    /** The sort specification. */
+    private final SortSpec spec;
+    /** Values of each column of the spec when stored as ints, name codes for NAME. */
+    private final int[][] ints;
+    /** Values of each column of the spec when stored as doubles. */
+    private final double[][] doubles;
+    /** Direction of each column of the spec. */
+    private final boolean[] ascending;
+    /** Game id of each row, the tiebreaker. */
+    private final int[] ids;
+    /** Rows of the store sorted on the first column, ascending, null if the store has none. */
+    private final int[] permutation;
+
+    /**
+     * Constructor for the order.
+     *
+     * @param store the store the rows belong to.
+     * @param spec the sort specification.
+     */
+    RowOrder(GameStore store, SortSpec spec) {
+        this.store = store;
+        this.spec = spec;
+        this.ints = new int[spec.size()][];
+        this.doubles = new double[spec.size()][];
+        this.ascending = new boolean[spec.size()];
+        for (int key = 0; key < spec.size(); key++) {
+            GameData column = spec.getColumn(key);
+            if (column == GameData.NAME) {
+                ints[key] = store.nameCodeColumn();
+            } else if (GameStore.isDoubleColumn(column)) {
+                doubles[key] = store.doubleColumn(column);
+            } else {
+                ints[key] = store.intColumn(column);
+            }
+            ascending[key] = spec.isAscending(key);
+        }
+        this.ids = store.intColumn(GameData.ID);
+        this.permutation = store.getSortedRows(spec.getColumn(0));
+    }
+
+    /**
+     * Get the store the order is on.
+     *
+     * @return the store.
+     */
+    GameStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the sort specification.
+     *
+     * @return the spec.
+     */
+    SortSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Compares two rows.
+     *
+     * @param a first row.
+     * @param b second row.
+     * @return negative if a comes first, positive if b does, zero only if they are the same row.
+     */
+    int compare(int a, int b) {
+        for (int key = 0; key < ascending.length; key++) {
+            int cmp = compareKey(key, a, b);
+            if (cmp != 0) {
+                return ascending[key] ? cmp : -cmp;
+            }
+        }
+        return compareTies(a, b);
+    }
+
+    /**
+     * Compares the values of two rows in one column of the spec, ascending.
+     *
+     * @param key position of the column in the spec.
+     * @param a first row.
+     * @param b second row.
+     * @return negative, zero or positive like any comparator.
+     */
+    private int compareKey(int key, int a, int b) {
+        int[] column = ints[key];
+        return column != null ? Integer.compare(column[a], column[b])
+                : Double.compare(doubles[key][a], doubles[key][b]);
+    }
+
+    /**
+     * Compares two rows on the tiebreakers, the id then the row ID.
+     *
+     * @param a first row.
+     * @param b second row.
+     * @return negative, zero or positive like any comparator.
+     */
+    private int compareTies(int a, int b) {
+        int cmp = Integer.compare(ids[a], ids[b]);
+        return cmp != 0 ? cmp : Integer.compare(a, b);
+    }
+
+    /**
+     * Sorts a set of rows.
+     *
+     * @param rows the rows.
+     * @return the row IDs in this order.
+     */
+    int[] sort(RowSet rows) {
+        return sort(rows, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * Sorts a set of rows, splitting the work across threads when it is large enough. The walk
+     * of the permutation is cut into chunks of positions that each fill their own slice of the
+     * result, and the merge sort sorts both halves of large slices at the same time.
+     *
+     * @param rows the rows.
+     * @param parallelism how to split the work.
+     * @return the row IDs in this order.
+     */
+    int[] sort(RowSet rows, Parallelism parallelism) {
+        int count = rows.cardinality();
+        if (permutation != null && (long) count * WALK_RATIO >= permutation.length) {
+            if (parallelism.splits(permutation.length)) {
+                return parallelWalk(rows, count, parallelism);
+            }
+            return walk(rows, -1, 0, count);
+        }
+        int[] sorted = rows.toArray();
+        int[] buffer = new int[sorted.length];
+        if (parallelism.splits(sorted.length)) {
+            parallelism.invoke(new SortTask(sorted, buffer, 0, sorted.length,
+                    parallelism.getThreshold()));
+        } else {
+            mergeSort(sorted, buffer, 0, sorted.length);
+        }
+        return sorted;
+    }
+
+    /**
+     * Selects a page of the sorted rows without sorting all of them.
+     *
+     * The first skip + limit rows are kept in a bounded heap whose root is the last of them, so
+     * selecting costs O(n log k) for n rows and k = skip + limit, and only the k rows are sorted.
+     * When the store is indexed and the rows are dense enough that k of them are found early in
+     * the permutation, the permutation is walked instead.
+     *
+     * @param rows the rows to select from.
+     * @param after only rows that come after this one are selected, -1 for all rows.
+     * @param skip number of leading rows to skip.
+     * @param limit largest number of rows to return.
+     * @return the selected rows, in this order.
+     */
+    int[] top(RowSet rows, int after, int skip, int limit) {
+        return top(rows, after, skip, limit, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * Selects a page of the sorted rows without sorting all of them, splitting the work across
+     * threads when it is large enough. Each chunk of row IDs keeps its own bounded heap, and the
+     * first skip + limit rows of the chunks are merged at the end.
+     *
+     * @param rows the rows to select from.
+     * @param after only rows that come after this one are selected, -1 for all rows.
+     * @param skip number of leading rows to skip.
+     * @param limit largest number of rows to return.
+     * @param parallelism how to split the work.
+     * @return the selected rows, in this order.
+     */
+    int[] top(RowSet rows, int after, int skip, int limit, Parallelism parallelism) {
+        int count = rows.cardinality();
+        int k = (int) Math.min((long) skip + limit, count);
+        if (k <= skip) {
+            return new int[0];
+        }
+        if (permutation != null && (long) k * permutation.length <= (long) count * count) {
+            return walk(rows, after, skip, limit);
+        }
+        int chunks = parallelism.chunks(count);
+        if (chunks == 1) {
+            int[] best = heapTop(rows, after, 0, rows.universe(), k);
+            return Arrays.copyOfRange(best, Math.min(skip, best.length), best.length);
+        }
+        int chunkRows = (rows.universe() + chunks - 1) / chunks;
+        int[][] best = new int[chunks][];
+        parallelism.forEachChunk(chunks, chunk -> best[chunk] = heapTop(rows, after,
+                chunk * chunkRows, Math.min(rows.universe(), (chunk + 1) * chunkRows), k));
+        int total = 0;
+        for (int[] part : best) {
+            total += part.length;
+        }
+        int[] merged = new int[total];
+        int size = 0;
+        for (int[] part : best) {
+            System.arraycopy(part, 0, merged, size, part.length);
+            size += part.length;
+        }
+        mergeSort(merged, new int[total], 0, total);
+        int end = Math.min(k, total);
+        return Arrays.copyOfRange(merged, Math.min(skip, end), end);
+    }
+
+    /**
+     * Keeps the first rows of a range of row IDs in a bounded heap whose root is the last of
+     * them.
+     *
+     * @param rows the rows to select from.
+     * @param after only rows that come after this one are selected, -1 for all rows.
+     * @param from first row ID of the range, inclusive.
+     * @param to last row ID of the range, exclusive.
+     * @param k largest number of rows to keep.
+     * @return the first rows of the range, in this order.
+     */
+    private int[] heapTop(RowSet rows, int after, int from, int to, int k) {
+        int[] heap = new int[k];
+        int size = 0;
+        for (int row = rows.nextRow(from); row >= 0 && row < to; row = rows.nextRow(row + 1)) {
+            if (after >= 0 && compare(row, after) <= 0) {
+                continue;
+            }
+            if (size < k) {
+                heap[size] = row;
+                siftUp(heap, size++);
+            } else if (compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, 0, size);
+            }
+        }
+        for (int end = size - 1; end > 0; end--) {
+            int last = heap[0];
+            heap[0] = heap[end];
+            heap[end] = last;
+            siftDown(heap, 0, end);
+        }
+        return size == k ? heap : Arrays.copyOf(heap, size);
+    }
+
+    /**
+     * Sorts a set of rows by walking the permutation in chunks of positions at the same time.
+     *
+     * Each chunk first counts the rows it keeps, so that it can fill its own slice of the
+     * result, backwards for a descending first column. Reversing the walk also reverses the ties
+     * on the first column, so the result is then cut at runs of equal first values and each
+     * chunk puts its runs back in id order, or sorts them on the other columns.
+     *
+     * @param rows the rows to sort.
+     * @param count number of rows in the set.
+     * @param parallelism how to split the work.
+     * @return the row IDs in this order.
+     */
+    private int[] parallelWalk(RowSet rows, int count, Parallelism parallelism) {
+        int n = permutation.length;
+        int chunks = parallelism.chunks(n);
+        int chunkSize = (n + chunks - 1) / chunks;
+        int[] kept = new int[chunks + 1];
+        parallelism.forEachChunk(chunks, chunk -> {
+            int end = Math.min(n, (chunk + 1) * chunkSize);
+            int found = 0;
+            for (int p = chunk * chunkSize; p < end; p++) {
+                if (rows.contains(permutation[p])) {
+                    found++;
+                }
+            }
+            kept[chunk + 1] = found;
+        });
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            kept[chunk + 1] += kept[chunk];
+        }
+        int[] out = new int[count];
+        boolean up = ascending[0];
+        parallelism.forEachChunk(chunks, chunk -> {
+            int end = Math.min(n, (chunk + 1) * chunkSize);
+            int next = kept[chunk];
+            for (int p = chunk * chunkSize; p < end; p++) {
+                int row = permutation[p];
+                if (rows.contains(row)) {
+                    out[up ? next : count - 1 - next] = row;
+                    next++;
+                }
+            }
+        });
+        if (up && ascending.length == 1) {
+            return out;
+        }
+        int pieces = parallelism.chunks(count);
+        int[] bounds = new int[pieces + 1];
+        for (int piece = 1; piece <= pieces; piece++) {
+            int bound = Math.max(bounds[piece - 1], (int) ((long) count * piece / pieces));
+            while (bound > 0 && bound < count && compareKey(0, out[bound - 1], out[bound]) == 0) {
+                bound++;
+            }
+            bounds[piece] = bound;
+        }
+        int[] buffer = ascending.length > 1 ? new int[count] : null;
+        parallelism.forEachChunk(pieces,
+                piece -> fixRuns(out, buffer, bounds[piece], bounds[piece + 1]));
+        return out;
+    }
+
+    /**
+     * Puts the runs of equal first values of a slice of a walk in this order. A run walked
+     * backwards is reversed back into id order, and with more than one column it is sorted.
+     *
+     * @param out the walked rows.
+     * @param buffer scratch space as long as the rows to sort the runs, null with one column.
+     * @param from first position of the slice, the start of a run.
+     * @param to last position of the slice, exclusive, the end of a run.
+     */
+    private void fixRuns(int[] out, int[] buffer, int from, int to) {
+        int start = from;
+        while (start < to) {
+            int end = start + 1;
+            while (end < to && compareKey(0, out[start], out[end]) == 0) {
+                end++;
+            }
+            if (buffer != null) {
+                mergeSort(out, buffer, start, end);
+            } else {
+                for (int i = start, j = end - 1; i < j; i++, j--) {
+                    int row = out[i];
+                    out[i] = out[j];
+                    out[j] = row;
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Walks the permutation in this order, keeping the rows of a set.
+     *
+     * @param rows the rows to keep.
+     * @param after only rows that come after this one are kept, -1 for all rows.
+     * @param skip number of leading rows to skip.
+     * @param limit largest number of rows to return.
+     * @return the kept rows, in this order.
+     */
+    private int[] walk(RowSet rows, int after, int skip, int limit) {
+        int[] out = new int[Math.min(limit, rows.cardinality())];
+        int[] state = {skip, 0};
+        boolean single = ascending.length == 1;
+        int low = ascending[0] ? 0 : permutation.length;
+        int high = low;
+        if (after >= 0) {
+            int position = positionOf(after);
+            low = runStart(position);
+            high = runEnd(position);
+            if (single) {
+                collect(rows, position + 1, high, state, out);
+            } else {
+                collectRun(rows, low, high, after, state, out);
+            }
+        }
+        if (single && ascending[0]) {
+            // the ties are already in order, so the rest is one slice.
+            collect(rows, high, permutation.length, state, out);
+            return Arrays.copyOf(out, state[1]);
+        }
+
+        while (state[1] < out.length) {
+            if (ascending[0]) {
+                if (high >= permutation.length) {
+                    break;
+                }
+                low = high;
+                high = runEnd(low);
+            } else {
+                if (low <= 0) {
+                    break;
+                }
+                high = low;
+                low = runStart(high - 1);
+            }
+            if (single) {
+                collect(rows, low, high, state, out);
+            } else {
+                collectRun(rows, low, high, -1, state, out);
+            }
+        }
+        return Arrays.copyOf(out, state[1]);
+    }
+
+    /**
+     * Keeps the rows of a set from a slice of the permutation, in permutation order.
+     *
+     * @param rows the rows to keep.
+     * @param from first position, inclusive.
+     * @param to last position, exclusive.
+     * @param state rows still to skip, then number of rows kept so far, both updated.
+     * @param out the kept rows.
+     */
+    private void collect(RowSet rows, int from, int to, int[] state, int[] out) {
+        for (int p = from; p < to && state[1] < out.length; p++) {
+            int row = permutation[p];
+            if (rows.contains(row)) {
+                if (state[0] > 0) {
+                    state[0]--;
+                } else {
+                    out[state[1]++] = row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the rows of a set from a run of equal first column values, sorted on the other
+     * columns.
+     *
+     * @param rows the rows to keep.
+     * @param from first position of the run, inclusive.
+     * @param to last position of the run, exclusive.
+     * @param after only rows that come after this one are kept, -1 for all rows.
+     * @param state rows still to skip, then number of rows kept so far, both updated.
+     * @param out the kept rows.
+     */
+    private void collectRun(RowSet rows, int from, int to, int after, int[] state, int[] out) {
+        int[] run = new int[to - from];
+        int count = 0;
+        for (int p = from; p < to; p++) {
+            int row = permutation[p];
+            if (rows.contains(row) && (after < 0 || compare(row, after) > 0)) {
+                run[count++] = row;
+            }
+        }
+        mergeSort(run, new int[count], 0, count);
+        for (int i = 0; i < count && state[1] < out.length; i++) {
+            if (state[0] > 0) {
+                state[0]--;
+            } else {
+                out[state[1]++] = run[i];
+            }
+        }
+    }
+
+    /**
+     * Finds a row in the permutation.
+     *
+     * @param row the row.
+     * @return its position.
+     */
+    private int positionOf(int row) {
+        int low = 0;
+        int high = permutation.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int other = permutation[mid];
+            int cmp = compareKey(0, other, row);
+            if (cmp < 0 || (cmp == 0 && compareTies(other, row) < 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first position of the run of equal values around a position. The search
+     * gallops from the position, so a short run costs a few comparisons whatever the size of
+     * the store.
+     *
+     * @param position a position in the permutation.
+     * @return the first position with the same first column value.
+     */
+    private int runStart(int position) {
+        int row = permutation[position];
+        int found = position;
+        int step = 1;
+        int probe = position - 1;
+        while (probe >= 0 && compareKey(0, permutation[probe], row) == 0) {
+            found = probe;
+            step <<= 1;
+            probe = position - step;
+        }
+        int low = Math.max(probe + 1, 0);
+        int high = found;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(0, permutation[mid], row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the end of the run of equal values around a position, galloping like runStart.
+     *
+     * @param position a position in the permutation.
+     * @return the first position after it with a larger first column value.
+     */
+    private int runEnd(int position) {
+        int row = permutation[position];
+        int found = position;
+        int step = 1;
+        int probe = position + 1;
+        while (probe < permutation.length && compareKey(0, permutation[probe], row) == 0) {
+            found = probe;
+            step <<= 1;
+            probe = position + step;
+        }
+        int low = found + 1;
+        int high = Math.min(probe, permutation.length);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(0, permutation[mid], row) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts a slice of row IDs in this order.
+     *
+     * @param rows the row IDs.
+     * @param buffer scratch space, at least as long as the slice end.
+     * @param from first position, inclusive.
+     * @param to last position, exclusive.
+     */
+    private void mergeSort(int[] rows, int[] buffer, int from, int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, mid);
+        mergeSort(rows, buffer, mid, to);
+        merge(rows, buffer, from, mid, to);
+    }
+
+    /**
+     * Merges two sorted slices next to each other.
+     *
+     * @param rows the row IDs.
+     * @param buffer scratch space, at least as long as the slice end.
+     * @param from first position of the first slice, inclusive.
+     * @param mid first position of the second slice.
+     * @param to last position of the second slice, exclusive.
+     */
+    private void merge(int[] rows, int[] buffer, int from, int mid, int to) {
+        if (compare(rows[mid - 1], rows[mid]) < 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, mid - from);
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            rows[k++] = compare(buffer[i], rows[j]) <= 0 ? buffer[i++] : rows[j++];
+        }
+        while (i < mid) {
+            rows[k++] = buffer[i++];
+        }
+    }
+
+    /**
+     * Moves an entry of the heap up until its parent comes after it.
+     *
+     * @param heap the heap, the row that comes last at the root.
+     * @param i position of the entry.
+     */
+    private void siftUp(int[] heap, int i) {
+        int row = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compare(heap[parent], row) >= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = row;
+    }
+
+    /**
+     * Moves an entry of the heap down until its children come before it.
+     *
+     * @param heap the heap, the row that comes last at the root.
+     * @param i position of the entry.
+     * @param size number of entries in the heap.
+     */
+    private void siftDown(int[] heap, int i, int size) {
+        int row = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (compare(heap[child], row) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = row;
+    }
+
+    /**
+     * Merge sort of a slice that sorts both halves at the same time while the slice is larger
+     * than the threshold.
+     */
+    private final class SortTask extends RecursiveAction {
+        /** Serial version, tasks are never serialized. */
+        private static final long serialVersionUID = 1L;
+        /** The row IDs. */
+        private final int[] rows;
+        /** Scratch space, as long as the row IDs. */
+        private final int[] buffer;
+        /** First position, inclusive. */
+        private final int from;
+        /** Last position, exclusive. */
+        private final int to;
+        /** Slices up to this size are sorted on one thread. */
+        private final int threshold;
+
+        /**
+         * Constructor for the task.
+         *
+         * @param rows the row IDs.
+         * @param buffer scratch space, as long as the row IDs.
+         * @param from first position, inclusive.
+         * @param to last position, exclusive.
+         * @param threshold slices up to this size are sorted on one thread.
+         */
+        SortTask(int[] rows, int[] buffer, int from, int to, int threshold) {
+            this.rows = rows;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        /**
+         * Sorts the slice, or both halves at the same time then merges them.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                mergeSort(rows, buffer, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(rows, buffer, from, mid, threshold),
+                    new SortTask(rows, buffer, mid, to, threshold));
+            merge(rows, buffer, from, mid, to);
+        }
+    }
+}
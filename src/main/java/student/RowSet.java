@@ -0,0 +1,337 @@
+package student;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Compact set of row IDs, one bit per row of a GameStore.
+ *
+ * The sets are immutable once built, AND/OR/NOT create new sets and work a word (64 rows) at a
+ * time, so a bitmap can be cached and shared safely.
+ */
+public final class RowSet {
+    /** Bits per word. */
+    private static final int WORD_BITS = Long.SIZE;
+    /** Shift to get the word of a row. */
+    private static final int WORD_SHIFT = 6;
+
+    /** Number of rows in the universe (the store). */
+    private final int size;
+    /** The bits, row r is bit (r % 64) of word (r / 64). */
+    private final long[] words;
+
+    /**
+     * Constructor for the set.
+     *
+     * @param size number of rows in the universe.
+     * @param words the bits, owned by the set from now on.
+     */
+    private RowSet(int size, long[] words) {
+        this.size = size;
+        this.words = words;
+    }
+
+    /**
+     * Get the number of words needed for a universe.
+     *
+     * @param size number of rows in the universe.
+     * @return number of words.
+     */
+    private static int wordCount(int size) {
+        return (size + WORD_BITS - 1) >>> WORD_SHIFT;
+    }
+
+    /**
+     * Builds an empty set.
+     *
+     * @param size number of rows in the universe.
+     * @return the set with no rows.
+     */
+    public static RowSet empty(int size) {
+        return new RowSet(size, new long[wordCount(size)]);
+    }
+
+    /**
+     * Builds a set with every row.
+     *
+     * @param size number of rows in the universe.
+     * @return the set with all rows.
+     */
+    public static RowSet all(int size) {
+        long[] words = new long[wordCount(size)];
+        Arrays.fill(words, -1L);
+        return new RowSet(size, trim(size, words));
+    }
+
+    /**
+     * Builds a set from row IDs, in any order.
+     *
+     * @param size number of rows in the universe.
+     * @param rows the row IDs to set.
+     * @return the set with those rows.
+     */
+    public static RowSet of(int size, int[] rows) {
+        return of(size, rows, 0, rows.length);
+    }
+
+    /**
+     * Builds a set from a slice of an array of row IDs, in any order.
+     *
+     * @param size number of rows in the universe.
+     * @param rows the row IDs.
+     * @param from first position to set, inclusive.
+     * @param to last position to set, exclusive.
+     * @return the set with those rows.
+     */
+    public static RowSet of(int size, int[] rows, int from, int to) {
+        long[] words = new long[wordCount(size)];
+        for (int i = from; i < to; i++) {
+            words[rows[i] >>> WORD_SHIFT] |= 1L << rows[i];
+        }
+        return new RowSet(size, words);
+    }
+
+    /**
+     * Builds the set of rows of a candidate set that pass a test. Only the rows in the
+     * candidates are tested.
+     *
+     * @param candidates rows to test.
+     * @param test the test on row IDs.
+     * @return the rows of the candidates that pass.
+     */
+    public static RowSet select(RowSet candidates, IntPredicate test) {
+        return select(candidates, test, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * Builds the set of rows of a candidate set that pass a test, with the words of the set cut
+     * into chunks that are tested at the same time. Each chunk writes only its own words.
+     *
+     * @param candidates rows to test.
+     * @param test the test on row IDs, called from several threads.
+     * @param parallelism how to split the work.
+     * @return the rows of the candidates that pass.
+     */
+    public static RowSet select(RowSet candidates, IntPredicate test, Parallelism parallelism) {
+        long[] source = candidates.words;
+        long[] words = new long[source.length];
+        int chunks = parallelism.chunks(candidates.cardinality());
+        int chunkWords = (source.length + chunks - 1) / chunks;
+        parallelism.forEachChunk(chunks, chunk -> {
+            int end = Math.min(source.length, (chunk + 1) * chunkWords);
+            for (int w = chunk * chunkWords; w < end; w++) {
+                long bits = source[w];
+                long kept = 0L;
+                while (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    if (test.test((w << WORD_SHIFT) + bit)) {
+                        kept |= 1L << bit;
+                    }
+                    bits &= bits - 1;
+                }
+                words[w] = kept;
+            }
+        });
+        return new RowSet(candidates.size, words);
+    }
+
+    /**
+     * Clears the bits past the end of the universe in the last word.
+     *
+     * @param size number of rows in the universe.
+     * @param words the bits.
+     * @return the same words.
+     */
+    private static long[] trim(int size, long[] words) {
+        int tail = size & (WORD_BITS - 1);
+        if (tail != 0) {
+            words[words.length - 1] &= (1L << tail) - 1;
+        }
+        return words;
+    }
+
+    /**
+     * Get the number of rows in the universe.
+     *
+     * @return the universe size.
+     */
+    public int universe() {
+        return size;
+    }
+
+    /**
+     * Check if a row is in the set.
+     *
+     * @param row the row ID.
+     * @return true if the row is in the set.
+     */
+    public boolean contains(int row) {
+        return row >= 0 && row < size && (words[row >>> WORD_SHIFT] & (1L << row)) != 0;
+    }
+
+    /**
+     * Get the number of rows in the set.
+     *
+     * @return the cardinality.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Check if the set has no rows.
+     *
+     * @return true if empty.
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Intersection of two sets over the same universe.
+     *
+     * @param other the other set.
+     * @return rows in both sets.
+     */
+    public RowSet and(RowSet other) {
+        long[] result = new long[words.length];
+        for (int w = 0; w < result.length; w++) {
+            result[w] = words[w] & other.words[w];
+        }
+        return new RowSet(size, result);
+    }
+
+    /**
+     * Union of two sets over the same universe.
+     *
+     * @param other the other set.
+     * @return rows in either set.
+     */
+    public RowSet or(RowSet other) {
+        long[] result = new long[words.length];
+        for (int w = 0; w < result.length; w++) {
+            result[w] = words[w] | other.words[w];
+        }
+        return new RowSet(size, result);
+    }
+
+    /**
+     * Difference of two sets over the same universe.
+     *
+     * @param other the other set.
+     * @return rows in this set that are not in the other one.
+     */
+    public RowSet andNot(RowSet other) {
+        long[] result = new long[words.length];
+        for (int w = 0; w < result.length; w++) {
+            result[w] = words[w] & ~other.words[w];
+        }
+        return new RowSet(size, result);
+    }
+
+    /**
+     * Complement of the set.
+     *
+     * @return rows of the universe that are not in this set.
+     */
+    public RowSet not() {
+        long[] result = new long[words.length];
+        for (int w = 0; w < result.length; w++) {
+            result[w] = ~words[w];
+        }
+        return new RowSet(size, trim(size, result));
+    }
+
+    /**
+     * Moves the set to a universe of another size, used when rows are appended to a store.
+     *
+     * @param newSize number of rows in the new universe.
+     * @return the same rows, less the ones past the end of a smaller universe.
+     */
+    public RowSet resize(int newSize) {
+        if (newSize == size) {
+            return this;
+        }
+        long[] result = Arrays.copyOf(words, wordCount(newSize));
+        return new RowSet(newSize, trim(newSize, result));
+    }
+
+    /**
+     * Get the next row in the set.
+     *
+     * @param from row to start from, inclusive.
+     * @return the first row in the set that is at least from, or -1 if there is none.
+     */
+    public int nextRow(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int w = from >>> WORD_SHIFT;
+        if (w >= words.length) {
+            return -1;
+        }
+        long bits = words[w] & (-1L << from);
+        while (bits == 0) {
+            if (++w >= words.length) {
+                return -1;
+            }
+            bits = words[w];
+        }
+        return (w << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Materializes the set as row IDs.
+     *
+     * @return the row IDs in ascending order.
+     */
+    public int[] toArray() {
+        int[] rows = new int[cardinality()];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            long bits = words[w];
+            while (bits != 0) {
+                rows[count++] = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Check if two sets have the same universe and rows.
+     *
+     * @param obj object to compare.
+     * @return true if the sets are equal.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RowSet)) {
+            return false;
+        }
+        RowSet other = (RowSet) obj;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    /**
+     * Get the hash code of the set.
+     *
+     * @return hash code based on the rows.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,287 @@
+package student;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many independent planner sessions on one shared catalog, and evicts the idle ones.
+ *
+ * A session is a Planner and a game list, the games themselves are only in the catalog, so
+ * sessions that are not filtering cost a few small objects each. Sessions are used in two ways.
+ * Programmatic sessions (the HTTP server) are opened, looked up by ID, and only cost a thread
+ * while a request runs. Console sessions run a ConsoleApp over a reader and a writer, for
+ * example a socket from {@link #listen(int)}, each on a thread of its own that is blocked on
+ * the input while the user is idle. Those threads are virtual threads when the JVM has them
+ * (Java 21 and later), so a hundred thousand idle consoles cost their stacks on the heap and not
+ * a hundred thousand platform threads. On older JVMs they fall back to a cached thread pool.
+ *
+ * One daemon thread sweeps the sessions a few times per idle timeout, and closes the ones that
+ * were not used for longer than the timeout. Closing a console session closes its input, which
+ * ends its ConsoleApp.
+ */
+public final class SessionManager implements AutoCloseable {
+    /** Default time a session can stay unused before it is evicted. */
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    /** Sweeps per idle timeout, so a session is evicted at most a quarter late. */
+    private static final int SWEEPS_PER_TIMEOUT = 4;
+
+    /** The catalog shared by every session. */
+    private final Catalog catalog;
+    /** Parallelism of the planner of a new session. */
+    private final Parallelism parallelism;
+    /** Nanoseconds a session can stay unused before it is evicted. */
+    private final long idleNanos;
+    /** Sessions by ID. */
+    private final Map<String, PlannerSession> sessions = new ConcurrentHashMap<>();
+    /** Runs the console sessions, a thread each. */
+    private final ExecutorService consoles = newExecutor();
+    /** Runs the sweeps for idle sessions. */
+    private final ScheduledExecutorService sweeper;
+    /** Accepts console connections, null until listening. */
+    private volatile ServerSocket listener;
+
+    /**
+     * Constructor for the manager.
+     *
+     * @param catalog the catalog shared by every session.
+     * @param parallelism how the planner of each session splits its work.
+     * @param idleTimeout time a session can stay unused before it is evicted.
+     * @throws IllegalArgumentException if the timeout is not positive.
+     */
+    public SessionManager(Catalog catalog, Parallelism parallelism, Duration idleTimeout) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Invalid idle timeout " + idleTimeout);
+        }
+        this.catalog = catalog;
+        this.parallelism = parallelism;
+        this.idleNanos = idleTimeout.toNanos();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleNanos / SWEEPS_PER_TIMEOUT);
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Builds an executor that runs each task on a thread of its own. The virtual thread
+     * executor is looked up by reflection so the code still builds and runs on Java 17.
+     *
+     * @return the executor.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Opens a programmatic session.
+     *
+     * @return the new session.
+     */
+    public PlannerSession open() {
+        Planner planner = catalog.newSession();
+        planner.setParallelism(parallelism);
+        PlannerSession session = new PlannerSession(UUID.randomUUID().toString(), planner);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Finds a session and marks it as used.
+     *
+     * @param id the ID of the session.
+     * @return the session, null if it is unknown, closed or evicted.
+     */
+    public PlannerSession get(String id) {
+        PlannerSession session = sessions.get(id);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * Closes a session.
+     *
+     * @param id the ID of the session.
+     * @return true if the session was open.
+     */
+    public boolean close(String id) {
+        PlannerSession session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        session.close();
+        return true;
+    }
+
+    /**
+     * Get the number of open sessions.
+     *
+     * @return the number of sessions.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Runs a console session on a thread of its own. The session is closed when the console
+     * ends, and the console is ended when the session is evicted.
+     *
+     * @param input where the commands are read from.
+     * @param output where the results are written to.
+     * @param batch true to run the commands as a script, without prompts.
+     * @return the session of the console.
+     */
+    public PlannerSession runConsole(Reader input, Writer output, boolean batch) {
+        PlannerSession session = open();
+        session.setResource(input);
+        consoles.execute(() -> {
+            try {
+                new ConsoleApp(session.getGameList(), session.getPlanner(),
+                        ConsoleApp.DEFAULT_PAGE_SIZE, new TouchingReader(input, session), output,
+                        batch).start();
+            } catch (UncheckedIOException e) {
+                // the input was closed, by eviction or by the other end.
+            } finally {
+                close(session.getId());
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Accepts console connections on a port, each one running a console session, until the
+     * manager is closed. The connections are accepted on a platform thread that keeps the JVM
+     * running.
+     *
+     * @param port the port to listen on, 0 for any free port.
+     * @return the port listened on.
+     * @throws IOException if the port cannot be opened.
+     */
+    public int listen(int port) throws IOException {
+        ServerSocket socket = new ServerSocket(port);
+        listener = socket;
+        Thread accept = new Thread(() -> {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    PlannerSession session = runConsole(
+                            new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8),
+                            new OutputStreamWriter(client.getOutputStream(),
+                                    StandardCharsets.UTF_8), false);
+                    session.setResource(client);
+                } catch (IOException e) {
+                    // the listener was closed, or one connection failed, keep accepting.
+                }
+            }
+        }, "console-listener");
+        accept.start();
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Closes the sessions that were not used for longer than the idle timeout.
+     *
+     * @return the number of sessions evicted.
+     */
+    public int evictIdle() {
+        return evictIdle(System.nanoTime());
+    }
+
+    /**
+     * Closes the sessions that were not used for longer than the idle timeout, at a given time.
+     *
+     * @param now the time, from System.nanoTime.
+     * @return the number of sessions evicted.
+     */
+    int evictIdle(long now) {
+        int evicted = 0;
+        for (PlannerSession session : sessions.values()) {
+            if (now - session.getLastUsed() > idleNanos
+                    && sessions.remove(session.getId(), session)) {
+                session.close();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Stops listening, closes every session and stops the sweeper.
+     */
+    @Override
+    public void close() {
+        ServerSocket socket = listener;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // closing anyway.
+            }
+        }
+        sweeper.shutdownNow();
+        for (String id : sessions.keySet()) {
+            close(id);
+        }
+        consoles.shutdown();
+    }
+
+    /**
+     * A reader that marks its session as used each time it reads a command.
+     */
+    private static final class TouchingReader extends FilterReader {
+        /** The session to mark. */
+        private final PlannerSession session;
+
+        /**
+         * Constructor for the reader.
+         *
+         * @param in the reader to read from.
+         * @param session the session to mark.
+         */
+        TouchingReader(Reader in, PlannerSession session) {
+            super(in);
+            this.session = session;
+        }
+
+        /**
+         * Reads characters, marking the session once they arrive.
+         *
+         * @param buffer where to put the characters.
+         * @param offset first position to fill.
+         * @param length largest number of characters.
+         * @return the number of characters read, -1 at the end.
+         * @throws IOException if the input fails or is closed.
+         */
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            session.touch();
+            return read;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sort specification, the columns to sort on in order of priority, each with its direction.
+ *
+ * Rows that tie on every column are ordered on the game id, then on the row ID, so the order
+ * of a result never depends on how the games were loaded. Specs are immutable, and their
+ * canonical text form (for example rank:asc,year:desc,name:asc) is used as a cache key.
+ */
+public final class SortSpec {
+    /** Optional prefix of a specification, as typed in the console. */
+    private static final String PREFIX = "sort:";
+    /** Separator between the keys of a spec. */
+    private static final char KEY_SEPARATOR = ',';
+    /** Separator between a column and its direction. */
+    private static final char DIRECTION_SEPARATOR = ':';
+    /** Ascending direction. */
+    private static final String ASC = "asc";
+    /** Descending direction. */
+    private static final String DESC = "desc";
+
+    /** Default sort, on the name ascending. */
+    public static final SortSpec DEFAULT = of(GameData.NAME, true);
+
+    /** Columns to sort on, in order of priority. */
+    private final GameData[] columns;
+    /** Direction of each column, true for ascending. */
+    private final boolean[] ascending;
+
+    /**
+     * Constructor for the spec.
+     *
+     * @param columns columns to sort on, in order of priority.
+     * @param ascending direction of each column.
+     */
+    private SortSpec(GameData[] columns, boolean[] ascending) {
+        this.columns = columns;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Builds a spec on a single column.
+     *
+     * @param column the column to sort on.
+     * @param ascending the sort direction.
+     * @return the spec.
+     */
+    public static SortSpec of(GameData column, boolean ascending) {
+        return new SortSpec(new GameData[] {column}, new boolean[] {ascending});
+    }
+
+    /**
+     * Parses a sort specification, a comma separated list of columns each with an optional
+     * direction, for example {@code rank,year:desc,name}. The direction can follow the column
+     * after a colon, a space or nothing at all (ratingdesc), and defaults to ascending. A
+     * leading {@code sort:} is ignored, and a column that repeats an earlier one is dropped as
+     * it can not change the order.
+     *
+     * @param text the specification.
+     * @return the spec, DEFAULT if the text is empty.
+     * @throws IllegalArgumentException if a column or a direction is not valid.
+     */
+    public static SortSpec parse(String text) {
+        String spec = text.trim().toLowerCase();
+        if (spec.startsWith(PREFIX)) {
+            spec = spec.substring(PREFIX.length());
+        }
+        List<GameData> columns = new ArrayList<>();
+        List<Boolean> directions = new ArrayList<>();
+        for (String key : CommandParser.split(spec, KEY_SEPARATOR)) {
+            // no spaces, so "rating desc" is read as ratingdesc and "year : desc" as year:desc
+            String part = CommandParser.compact(key);
+            if (part.isEmpty()) {
+                continue;
+            }
+            boolean up = true;
+            int separator = part.indexOf(DIRECTION_SEPARATOR);
+            if (separator >= 0) {
+                String direction = part.substring(separator + 1);
+                part = part.substring(0, separator);
+                if (direction.equals(DESC)) {
+                    up = false;
+                } else if (!direction.equals(ASC)) {
+                    throw new IllegalArgumentException("Invalid sort direction " + direction);
+                }
+            } else if (part.endsWith(DESC)) {
+                up = false;
+                part = part.substring(0, part.length() - DESC.length());
+            } else if (part.endsWith(ASC)) {
+                part = part.substring(0, part.length() - ASC.length());
+            }
+            GameData column = GameData.fromString(part);
+            if (!columns.contains(column)) {
+                columns.add(column);
+                directions.add(up);
+            }
+        }
+        if (columns.isEmpty()) {
+            return DEFAULT;
+        }
+        boolean[] ascending = new boolean[directions.size()];
+        for (int i = 0; i < ascending.length; i++) {
+            ascending[i] = directions.get(i);
+        }
+        return new SortSpec(columns.toArray(new GameData[0]), ascending);
+    }
+
+    /**
+     * Get the number of columns to sort on.
+     *
+     * @return the number of keys, at least 1.
+     */
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * Get a column to sort on.
+     *
+     * @param key position of the key, 0 for the first one.
+     * @return the column.
+     */
+    public GameData getColumn(int key) {
+        return columns[key];
+    }
+
+    /**
+     * Get the direction of a column.
+     *
+     * @param key position of the key, 0 for the first one.
+     * @return true for ascending.
+     */
+    public boolean isAscending(int key) {
+        return ascending[key];
+    }
+
+    /**
+     * Get the canonical form of the spec, every column with its direction.
+     *
+     * @return for example rank:asc,year:desc.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                text.append(KEY_SEPARATOR);
+            }
+            text.append(columns[i].getColumnName()).append(DIRECTION_SEPARATOR)
+                    .append(ascending[i] ? ASC : DESC);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Check if two specs sort the same way.
+     *
+     * @param obj object to compare.
+     * @return true if the columns and directions are the same.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SortSpec && toString().equals(obj.toString());
+    }
+
+    /**
+     * Get the hash of the spec.
+     *
+     * @return hash of the canonical form.
+     */
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
@@ -0,0 +1,321 @@
+package student;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a GameStore, so a planner can start without parsing the csv file.
+ *
+ * The layout (little endian) is a header followed by fixed width sections:
+ *
+ * <pre>
+ * header:      magic "BGAS", version, rows, distinct names, flags, reserved (6 ints)
+ * doubles:     DIFFICULTY, RATING (rows doubles each)
+ * ints:        ID, MIN_PLAYERS, MAX_PLAYERS, MIN_TIME, MAX_TIME, RANK, YEAR (rows ints each)
+ * name codes:  rows ints
+ * names:       byte offset of each name (distinct + 1 ints), then the UTF-8 bytes
+ * indexes:     if flag INDEXED, the sorted rows of each numeric column, ties on the id
+ *              (rows ints each)
+ * </pre>
+ *
+ * Reading maps the file and copies each section straight into its column, the names are
+ * already de-duplicated and in sorted order, so there is no parsing and no sorting.
+ */
+public final class StoreSnapshot {
+    /** First bytes of every snapshot. */
+    private static final int MAGIC = 0x53414742; // "BGAS" little endian
+    /** Current version of the format. */
+    private static final int VERSION = 2;
+    /** Flag for snapshots that include the sorted rows of the indexes. */
+    private static final int INDEXED = 1;
+    /** Size of the header in bytes, a multiple of 8 so the doubles are aligned. */
+    private static final int HEADER_BYTES = 24;
+    /** Size of the write buffer. */
+    private static final int WRITE_BUFFER = 1 << 20;
+    /** Double columns, in file order. */
+    private static final GameData[] DOUBLE_COLUMNS = {GameData.DIFFICULTY, GameData.RATING};
+    /** Int columns, in file order. */
+    private static final GameData[] INT_COLUMNS = {GameData.ID, GameData.MIN_PLAYERS,
+        GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.RANK, GameData.YEAR};
+    /** Indexed columns, in file order. */
+    private static final GameData[] INDEXED_COLUMNS = {GameData.DIFFICULTY, GameData.RATING,
+        GameData.ID, GameData.MIN_PLAYERS, GameData.MAX_PLAYERS, GameData.MIN_TIME,
+        GameData.MAX_TIME, GameData.RANK, GameData.YEAR};
+
+    /** private constructor to prevent instantiation. */
+    private StoreSnapshot() {
+    }
+
+    /**
+     * Writes a store to a snapshot file, overwriting it if it exists. Dead rows left by deltas
+     * are not written, so the row IDs in the snapshot can differ from the ones in the store.
+     *
+     * @param store the store to write.
+     * @param file the snapshot file.
+     * @throws IOException if the file can not be written.
+     */
+    public static void write(GameStore store, Path file) throws IOException {
+        GameStore.Columns columns = store.compact().toColumns();
+        int rows = columns.nameCodes.length;
+        byte[][] names = new byte[columns.dictionary.length][];
+        for (int code = 0; code < names.length; code++) {
+            names[code] = columns.dictionary[code].getBytes(StandardCharsets.UTF_8);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(names.length)
+                    .putInt(store.isIndexed() ? INDEXED : 0).putInt(0);
+            for (GameData col : DOUBLE_COLUMNS) {
+                putDoubles(channel, buf, columns.doubles[col.ordinal()]);
+            }
+            for (GameData col : INT_COLUMNS) {
+                putInts(channel, buf, columns.ints[col.ordinal()]);
+            }
+            putInts(channel, buf, columns.nameCodes);
+            int offset = 0;
+            for (byte[] name : names) {
+                room(channel, buf, Integer.BYTES).putInt(offset);
+                offset += name.length;
+            }
+            room(channel, buf, Integer.BYTES).putInt(offset);
+            for (byte[] name : names) {
+                putBytes(channel, buf, name);
+            }
+            if (store.isIndexed()) {
+                for (GameData col : INDEXED_COLUMNS) {
+                    putInts(channel, buf, columns.sortedRows[col.ordinal()]);
+                }
+            }
+            flush(channel, buf);
+        }
+    }
+
+    /**
+     * Reads a snapshot file into a store.
+     *
+     * @param file the snapshot file.
+     * @param indexed whether the store needs its indexes, they are read from the snapshot when
+     *                it has them and built otherwise.
+     * @return the store.
+     * @throws IOException if the file can not be read or is not a snapshot of this version.
+     */
+    public static GameStore read(Path file, boolean indexed) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a game store snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int rows = header.getInt();
+            int distinct = header.getInt();
+            int flags = header.getInt();
+            if (rows < 0 || distinct < 0) {
+                throw new IOException("Corrupt snapshot: " + rows + " rows, " + distinct
+                        + " names");
+            }
+            long sections = (long) rows * (DOUBLE_COLUMNS.length * Double.BYTES
+                    + (INT_COLUMNS.length + 1) * Integer.BYTES) + (distinct + 1L) * Integer.BYTES;
+            if (HEADER_BYTES + sections > channel.size()) {
+                throw new IOException("Snapshot is truncated");
+            }
+
+            long position = HEADER_BYTES;
+            double[][] doubles = new double[DOUBLE_COLUMNS.length][rows];
+            for (double[] column : doubles) {
+                map(channel, position, (long) rows * Double.BYTES).asDoubleBuffer().get(column);
+                position += (long) rows * Double.BYTES;
+            }
+            int[][] ints = new int[INT_COLUMNS.length][];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = getInts(channel, position, rows);
+                position += (long) rows * Integer.BYTES;
+            }
+            int[] nameCodes = getInts(channel, position, rows);
+            position += (long) rows * Integer.BYTES;
+            checkBounds(nameCodes, distinct, "name code");
+            int[] offsets = getInts(channel, position, distinct + 1);
+            position += (long) (distinct + 1) * Integer.BYTES;
+            if (offsets[0] != 0) {
+                throw new IOException("Corrupt snapshot: first name offset " + offsets[0]);
+            }
+            for (int code = 0; code < distinct; code++) {
+                if (offsets[code + 1] < offsets[code]) {
+                    throw new IOException("Corrupt snapshot: name offsets out of order");
+                }
+            }
+            byte[] bytes = new byte[offsets[distinct]];
+            map(channel, position, bytes.length).get(bytes);
+            position += bytes.length;
+            String[] dictionary = new String[distinct];
+            for (int code = 0; code < distinct; code++) {
+                dictionary[code] = new String(bytes, offsets[code], offsets[code + 1] - offsets[code],
+                        StandardCharsets.UTF_8);
+            }
+
+            GameStore.Columns columns = new GameStore.Columns(dictionary, nameCodes);
+            for (int i = 0; i < DOUBLE_COLUMNS.length; i++) {
+                columns.doubles[DOUBLE_COLUMNS[i].ordinal()] = doubles[i];
+            }
+            for (int i = 0; i < INT_COLUMNS.length; i++) {
+                columns.ints[INT_COLUMNS[i].ordinal()] = ints[i];
+            }
+            if (indexed && (flags & INDEXED) != 0) {
+                for (GameData col : INDEXED_COLUMNS) {
+                    columns.sortedRows[col.ordinal()] = getInts(channel, position, rows);
+                    position += (long) rows * Integer.BYTES;
+                    checkBounds(columns.sortedRows[col.ordinal()], rows, "indexed row");
+                }
+            }
+            return new GameStore(columns, indexed);
+        }
+    }
+
+    /**
+     * Checks that values read from the file can be used as positions in an array.
+     *
+     * @param values the values.
+     * @param bound the size of the array, every value must be smaller.
+     * @param what what the values are, for the message.
+     * @throws IOException if a value is negative or not smaller than the bound.
+     */
+    private static void checkBounds(int[] values, int bound, String what) throws IOException {
+        for (int value : values) {
+            if (value < 0 || value >= bound) {
+                throw new IOException("Corrupt snapshot: " + what + " " + value + " out of "
+                        + bound);
+            }
+        }
+    }
+
+    /**
+     * Maps a section of the file.
+     *
+     * @param channel the open file.
+     * @param position start of the section.
+     * @param size size of the section in bytes.
+     * @return the section, little endian.
+     * @throws IOException if the section is past the end of the file.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (position + size > channel.size()) {
+            throw new IOException("Snapshot is truncated");
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return buf.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Copies a section of ints out of the file.
+     *
+     * @param channel the open file.
+     * @param position start of the section.
+     * @param count number of ints.
+     * @return the ints.
+     * @throws IOException if the section is past the end of the file.
+     */
+    private static int[] getInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        map(channel, position, (long) count * Integer.BYTES).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Writes an array of doubles, a buffer at a time.
+     *
+     * @param channel the open file.
+     * @param buf the write buffer.
+     * @param values the doubles to write.
+     * @throws IOException if the file can not be written.
+     */
+    private static void putDoubles(FileChannel channel, ByteBuffer buf, double[] values)
+            throws IOException {
+        int done = 0;
+        while (done < values.length) {
+            room(channel, buf, Double.BYTES);
+            int count = Math.min(values.length - done, buf.remaining() / Double.BYTES);
+            buf.asDoubleBuffer().put(values, done, count);
+            buf.position(buf.position() + count * Double.BYTES);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes an array of bytes, in pieces that fit the write buffer.
+     *
+     * @param channel the open file.
+     * @param buf the write buffer.
+     * @param bytes the bytes to write.
+     * @throws IOException if the file can not be written.
+     */
+    private static void putBytes(FileChannel channel, ByteBuffer buf, byte[] bytes)
+            throws IOException {
+        int done = 0;
+        while (done < bytes.length) {
+            room(channel, buf, 1);
+            int count = Math.min(bytes.length - done, buf.remaining());
+            buf.put(bytes, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes an array of ints, a buffer at a time.
+     *
+     * @param channel the open file.
+     * @param buf the write buffer.
+     * @param values the ints to write.
+     * @throws IOException if the file can not be written.
+     */
+    private static void putInts(FileChannel channel, ByteBuffer buf, int[] values) throws IOException {
+        int done = 0;
+        while (done < values.length) {
+            room(channel, buf, Integer.BYTES);
+            int count = Math.min(values.length - done, buf.remaining() / Integer.BYTES);
+            buf.asIntBuffer().put(values, done, count);
+            buf.position(buf.position() + count * Integer.BYTES);
+            done += count;
+        }
+    }
+
+    /**
+     * Makes room in the write buffer, flushing it if needed.
+     *
+     * @param channel the open file.
+     * @param buf the write buffer.
+     * @param bytes bytes needed.
+     * @return the buffer.
+     * @throws IOException if the file can not be written.
+     */
+    private static ByteBuffer room(FileChannel channel, ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes) {
+            flush(channel, buf);
+        }
+        return buf;
+    }
+
+    /**
+     * Writes out the content of the write buffer and clears it.
+     *
+     * @param channel the open file.
+     * @param buf the write buffer.
+     * @throws IOException if the file can not be written.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
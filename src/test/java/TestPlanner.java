@@ -2,12 +2,25 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import student.BoardGame;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 import student.Planner;
+import student.GameList;
+import student.Catalog;
 import student.IPlanner;
 import student.GameData;
+import student.FilterPlan;
+import student.GameStore;
+import student.CatalogDelta;
+import student.ResultCache;
+import student.ResultPage;
+import student.SortSpec;
 
 
 /**
@@ -40,6 +53,15 @@ public class TestPlanner {
         assertEquals("Go", filtered.get(0).getName());
     }
 
+    @Test
+    public void testInvalidNumberIsIgnored() {
+        IPlanner planner = new Planner(games);
+        List<BoardGame> filtered = planner.filter("minplayers > abc, name == go").toList();
+        assertEquals(1, filtered.size());
+        assertEquals("Go", filtered.get(0).getName());
+        assertEquals(8, new Planner(games).filter("rating >= x").count());
+    }
+
     @Test
     public void testFiltermax() {
         IPlanner planner = new Planner(games);
@@ -84,4 +106,252 @@ public class TestPlanner {
         assertEquals("Tucano", filtered.get(0).getName());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testProgressiveFilterAndReset() {
+        IPlanner planner = new Planner(games);
+        assertEquals(5, planner.filter("maxPlayers>=7").toList().size());
+        List<BoardGame> filtered = planner.filter("minPlayers>5", GameData.RATING, false).toList();
+        assertEquals(List.of("Tucano", "Monopoly"),
+                filtered.stream().map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(8, planner.filter("").toList().size());
+    }
+
+    @Test
+    public void testCompiledPlanReuse() {
+        IPlanner planner = new Planner(games);
+        FilterPlan plan = planner.compile("minPlayers >= 2, maxPlayTime<=60, bogus, rank>abc");
+        assertEquals("minplayers>=2,maxplaytime<=60", plan.toString());
+        assertEquals(4, planner.filter(plan, GameData.NAME, true).toList().size());
+        planner.reset();
+        List<BoardGame> filtered = planner.filter(plan, GameData.RANK, false).toList();
+        assertEquals(List.of("Chess", "golang", "GoRami", "Go"),
+                filtered.stream().map(BoardGame::getName).toList());
+        assertEquals(4, games.stream().filter(plan.toPredicate()).count());
+    }
+
+    @Test
+    public void testIndexedRangeFilters() {
+        String[] filters = {"minPlayers>=2", "year<2004, rating>7", "maxPlayers==10", "rank<=300",
+            "difficulty>3.0, maxPlayers<=10, minPlayers<6", "year>3000", "rank!=100, year>=2000",
+            "name~=go", "name~=ola", "name~=ami, name~=gor", "name~=xyz", "name~=", "name~=g"};
+        for (String filter : filters) {
+            List<BoardGame> scanned = new Planner(games).filter(filter).toList();
+            List<BoardGame> indexed = new Planner(new GameStore(games, true)).filter(filter).toList();
+            assertEquals(scanned, indexed, filter);
+        }
+    }
+
+    @Test
+    public void testIndexedNanAgreesWithScan() {
+        Set<BoardGame> withNan = new HashSet<>(games);
+        withNan.add(new BoardGame("Unrated", 9, 2, 4, 30, 60, Double.NaN, 900, Double.NaN, 2010));
+        String[] filters = {"rating<=10", "rating==10", "rating>=5", "rating>9", "rating!=10",
+            "rating<100", "difficulty>=0", "rating==NaN", "rating!=NaN", "rating<=NaN"};
+        for (String filter : filters) {
+            List<BoardGame> scanned = new Planner(withNan).filter(filter).toList();
+            List<BoardGame> indexed = new Planner(new GameStore(withNan, true)).filter(filter)
+                    .toList();
+            assertEquals(scanned, indexed, filter);
+        }
+        assertEquals(0, new Planner(new GameStore(withNan, true)).filter("rating<=10")
+                .filter(game -> game.getName().equals("Unrated")).count());
+        assertEquals(1, new Planner(new GameStore(withNan, true)).filter("rating!=10")
+                .filter(game -> game.getName().equals("Unrated")).count());
+    }
+
+    @Test
+    public void testDeltaKeepsFilter() {
+        Planner planner = new Planner(new GameStore(games, true));
+        assertEquals(5, planner.filter("maxPlayers>=7").toList().size());
+        planner.filter("name~=go", GameData.NAME, true).toList();
+
+        planner.applyDelta(new CatalogDelta(List.of(
+                new BoardGame("Go", 1, 2, 2, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Golf", 9, 1, 8, 30, 30, 2.0, 900, 6.0, 2008),
+                new BoardGame("Gorilla", 10, 1, 2, 30, 30, 2.0, 950, 6.0, 2009),
+                new BoardGame("Tucano Go", 5, 10, 20, 60, 90, 6.0, 500, 8.0, 2004)),
+                List.of(4)));
+
+        List<BoardGame> filtered = planner.filter("", GameData.NAME, true).toList();
+        assertEquals(List.of("Go Fish", "Golf", "Tucano Go"),
+                filtered.stream().map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(9, planner.filter("").toList().size());
+        assertEquals(List.of("Go", "Gorilla"),
+                planner.filter("maxPlayers<=2, name~=go").map(BoardGame::getName).toList());
+    }
+
+    @Test
+    public void testResultFollowsDelta() {
+        Catalog catalog = new Catalog(new GameStore(games, true));
+        Planner planner = catalog.newSession();
+        planner.filter("name~=go", GameData.RATING, false).toList();
+        assertEquals(List.of("golang", "GoRami", "Go", "Go Fish"),
+                planner.getResult().stream().map(BoardGame::getName).toList());
+
+        // another session removes Go, raises Go Fish and renames GoRami out of the filter.
+        catalog.newSession().applyDelta(new CatalogDelta(List.of(
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 9.9, 2001),
+                new BoardGame("Rami", 3, 6, 6, 40, 42, 5.0, 300, 8.5, 2002)), List.of(1)));
+
+        assertEquals(List.of("Go Fish", "golang"),
+                planner.getResult().stream().map(BoardGame::getName).toList());
+        assertEquals(9.9, planner.getResult().get(0).getRating());
+        GameList list = new GameList();
+        list.addToList("all", planner.getResult());
+        assertEquals(List.of("Go Fish", "golang"), list.getGameNames());
+    }
+
+    @Test
+    public void testResultCache() {
+        Planner planner = new Planner(games);
+        ResultCache cache = planner.getResultCache();
+        List<BoardGame> first = planner.filter("minPlayers>=2, maxPlayers<=7", GameData.RATING)
+                .toList();
+        planner.reset();
+        List<BoardGame> second = planner.filter("maxPlayers <= 07,minPlayers>=2", GameData.RATING)
+                .toList();
+        assertEquals(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertEquals(List.of("Go", "golang", "GoRami"),
+                planner.filter("name~=go", GameData.NAME).map(BoardGame::getName).toList());
+        assertEquals(2, cache.getMisses());
+        planner.reset();
+        planner.filter("name~=go").toList();
+        assertEquals(List.of("Go", "golang", "GoRami"),
+                planner.filter("maxPlayers<=7,minPlayers>=2").map(BoardGame::getName).toList());
+        assertEquals(2, cache.getHits());
+
+        planner.applyDelta(new CatalogDelta(List.of(), List.of(4)));
+        assertEquals(0, cache.size());
+        assertEquals(List.of("Go", "GoRami"), planner.filter("").map(BoardGame::getName).toList());
+    }
+
+    @Test
+    public void testPagedResults() {
+        GameStore indexed = new GameStore(games, true);
+        for (GameData sortOn : GameData.values()) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                List<BoardGame> all = new Planner(games).filter("", sortOn, ascending).toList();
+                assertEquals(all, new Planner(indexed).filter("", sortOn, ascending).toList());
+                for (Planner planner : List.of(new Planner(games), new Planner(indexed))) {
+                    ResultPage page = planner.filter("", sortOn, ascending, 2, 3);
+                    assertEquals(all.subList(2, 5), page.getGames());
+                    assertEquals(8, page.getTotal());
+
+                    List<BoardGame> pages = new ArrayList<>(page.getGames());
+                    while (page.hasNext()) {
+                        page = planner.nextPage(page, 2);
+                        pages.addAll(page.getGames());
+                    }
+                    assertEquals(all.subList(2, 8), pages);
+                }
+            }
+        }
+
+        Planner planner = new Planner(games);
+        ResultPage page = planner.filter("name~=go", GameData.RATING, false, 0, 2);
+        assertEquals(List.of("golang", "GoRami"),
+                page.getGames().stream().map(BoardGame::getName).toList());
+        page = planner.nextPage(planner.filter("minPlayers<=2", GameData.RATING, false, 0, 1), 5);
+        assertEquals(List.of("Go", "Go Fish"), page.getGames().stream().map(BoardGame::getName).toList());
+        assertEquals(List.of(), planner.filter("", GameData.NAME, true, 10, 5).getGames());
+    }
+
+    @Test
+    public void testMultiKeySort() {
+        IPlanner planner = new Planner(games);
+        // ties on minPlayers are in id order, not in the order of the set.
+        assertEquals(List.of("17 days", "Go", "Go Fish", "golang", "Chess", "GoRami", "Monopoly",
+                "Tucano"), planner.filter("", SortSpec.parse("minPlayers"))
+                        .map(BoardGame::getName).toList());
+        SortSpec sort = SortSpec.parse("sort:maxPlayers:desc,minPlayers,name");
+        assertEquals(List.of("Tucano", "Go Fish", "Monopoly", "17 days", "golang", "GoRami", "Go"),
+                planner.filter("maxPlayers>=5", sort).map(BoardGame::getName).toList());
+        Planner indexed = new Planner(new GameStore(games, true));
+        assertEquals(new Planner(games).filter("", GameData.MIN_PLAYERS, false).toList(),
+                indexed.filter("", SortSpec.parse("minplayers desc")).toList());
+    }
+
+    @Test
+    public void testSharedCatalog() throws Exception {
+        Catalog catalog = new Catalog(new GameStore(games, true));
+        Planner a = catalog.newSession();
+        Planner b = catalog.newSession();
+        assertEquals(5, a.filter("maxPlayers>=7").toList().size());
+        assertEquals(List.of("Go", "Go Fish", "golang", "GoRami"),
+                b.filter("name~=go").map(BoardGame::getName).toList());
+
+        catalog.applyDelta(new CatalogDelta(List.of(
+                new BoardGame("Golf", 9, 1, 8, 30, 30, 2.0, 900, 6.0, 2008)), List.of(4)));
+        assertEquals(List.of("Go", "Go Fish", "Golf", "GoRami"),
+                b.filter("").map(BoardGame::getName).toList());
+        catalog.applyDelta(new CatalogDelta(List.of(
+                new BoardGame("Monopoly", 8, 6, 5, 20, 1000, 1.0, 800, 5.0, 2007)), List.of(9)));
+        // a missed two versions, it catches up with the rows both deltas touched.
+        assertEquals(List.of("17 days", "Go Fish", "Tucano"),
+                a.filter("").map(BoardGame::getName).toList());
+        assertEquals(List.of("Go", "Go Fish", "GoRami"),
+                b.filter("").map(BoardGame::getName).toList());
+
+        List<BoardGame> expected = catalog.newSession().filter("minPlayers>=2", GameData.RATING)
+                .toList();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<BoardGame>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> catalog.newSession()
+                        .filter("minPlayers>=2", GameData.RATING).toList()));
+            }
+            for (Future<List<BoardGame>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLazyProgressiveFilter() {
+        Planner planner = new Planner(games);
+        Stream<BoardGame> wide = planner.filter("minPlayers>=2");
+        Stream<BoardGame> narrow = planner.filter("maxPlayers<=7");
+        assertEquals(0, planner.getResultCache().getMisses());
+        assertEquals(List.of("Chess", "Go", "golang", "GoRami"),
+                narrow.map(BoardGame::getName).toList());
+        // each stream keeps the filter it was made with, even when read later.
+        assertEquals(List.of("Chess", "Go", "Go Fish", "golang", "GoRami", "Monopoly", "Tucano"),
+                wide.map(BoardGame::getName).toList());
+        assertEquals(List.of("GoRami"),
+                planner.filter("minPlayers>=3").map(BoardGame::getName).toList());
+        assertEquals(3, planner.getResultCache().getMisses());
+    }
+
+    @Test
+    public void testResultView() {
+        Planner planner = new Planner(games);
+        assertEquals("17 days", planner.getResult().get(0).getName());
+        planner.filter("minPlayers>=2", GameData.RATING, false);
+        List<BoardGame> result = planner.getResult();
+        assertEquals(7, result.size());
+        assertEquals(1, planner.getResultCache().getMisses());
+        assertEquals(List.of("Chess", "golang", "GoRami"),
+                result.subList(0, 3).stream().map(BoardGame::getName).toList());
+        assertEquals(2, planner.getResultCache().getMisses());
+
+        GameList list = new GameList();
+        list.addToList("2-3", result);
+        list.addToList("7", result);
+        assertEquals(Set.of("golang", "GoRami", "Monopoly"), Set.copyOf(list.getGameNames()));
+        assertEquals(2, planner.getResultCache().getMisses());
+
+        planner.filter("maxPlayers<=7", GameData.NAME, true, 0, 1);
+        assertEquals(List.of("Chess", "Go", "golang", "GoRami"),
+                planner.getResult().stream().map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(8, planner.getResult().size());
+    }
+}
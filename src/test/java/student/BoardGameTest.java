@@ -0,0 +1,62 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardGameTest {
+
+    @Test
+    void equalityOnIdAndName() {
+        BoardGame go = new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000);
+        assertEquals(go, new BoardGame("Go", 1, 1, 1, 1, 1, 1.0, 1, 1.0, 1));
+        assertNotEquals(go, new BoardGame("Go", 2, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        assertNotEquals(go, new BoardGame("go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        assertNotEquals(go, "Go");
+        assertEquals(new BoardGame(null, 3, 0, 0, 0, 0, 0, 0, 0, 0),
+                new BoardGame(null, 3, 0, 0, 0, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    void hashMatchesReflectionHash() {
+        // (17 * 37 + id) * 37 + name.hashCode(), what HashCodeBuilder gave for id and name.
+        assertEquals((17 * 37 + 1) * 37 + "Go".hashCode(),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000).hashCode());
+        assertEquals((17 * 37 + 3) * 37, new BoardGame(null, 3, 0, 0, 0, 0, 0, 0, 0, 0).hashCode());
+    }
+
+    @Test
+    void storeInternsGames() {
+        GameStore store = new GameStore(List.of(
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006)));
+        int go = store.getName(0).equals("Go") ? 0 : 1;
+        assertSame(store.getGame(go), store.getGame(go));
+        BoardGame chess = store.getGame(1 - go);
+        GameStore updated = store.applyDelta(new CatalogDelta(
+                List.of(new BoardGame("Go", 1, 2, 2, 30, 30, 8.0, 100, 7.5, 2000)), List.of())).store;
+        assertNotSame(store.getGame(go), updated.getGame(go));
+        assertEquals(2, updated.getGame(go).getMaxPlayers());
+        assertSame(chess, updated.getGame(1 - go));
+    }
+
+    @Test
+    void appendWithInfoMatchesFormat() {
+        for (double value : new double[] {0, 1.005, 0.125, 2.675, 9.995, 7.5, -0.001, -1.005,
+            123456.789, 1e-5, 3e9, Double.NaN}) {
+            assertEquals(String.format("%.2f", value),
+                    BoardGame.appendTwoDecimals(new StringBuilder(), value).toString());
+        }
+        for (BoardGame game : GamesLoader.loadGamesFile("/collection.csv")) {
+            assertEquals(String.format("%s (%.2f)", game.getName(), game.getRating()),
+                    game.toStringWithInfo(GameData.RATING));
+            assertEquals(String.format("%s (%.2f)", game.getName(), game.getDifficulty()),
+                    game.toStringWithInfo(GameData.DIFFICULTY));
+            assertEquals(game.getName() + " (" + game.getYearPublished() + ")",
+                    game.toStringWithInfo(GameData.YEAR));
+            assertEquals(game.getName(), game.toStringWithInfo(GameData.NAME));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogDeltaTest {
+    static final String[] FILTERS = {"minPlayers>=2", "year<2004, rating>7", "maxPlayers==4",
+        "rank<=300", "difficulty>3.0, maxPlayers!=10", "name~=the", "name~=delta", "name>m",
+        "rating==7.5"};
+
+    static List<String> run(GameStore store, String filter) {
+        RowSet rows = FilterCompiler.compile(filter).apply(store, store.liveRows());
+        List<String> games = new ArrayList<>();
+        for (int row : rows.toArray()) {
+            games.add(store.getGame(row).toString());
+        }
+        games.sort(null);
+        return games;
+    }
+
+    static GameStore sample() {
+        // a few ids repeat in the bundled file, the catalog is keyed by id.
+        Map<Integer, BoardGame> byId = new TreeMap<>();
+        for (BoardGame game : GamesLoader.loadGamesFile("/collection.csv")) {
+            byId.putIfAbsent(game.getId(), game);
+        }
+        GameStore store = new GameStore(byId.values(), true);
+        for (String filter : FILTERS) {
+            run(store, filter); // fill the bitmap cache, so it is carried over.
+        }
+        return store;
+    }
+
+    @Test
+    void applyMatchesRebuild() {
+        GameStore store = sample();
+        Map<Integer, BoardGame> expected = new TreeMap<>();
+        for (int row = 0; row < store.size(); row++) {
+            expected.put(store.getGame(row).getId(), store.getGame(row));
+        }
+        List<BoardGame> upserts = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        int i = 0;
+        for (BoardGame game : new ArrayList<>(expected.values())) {
+            if (i % 7 == 0) {
+                upserts.add(new BoardGame(game.getName(), game.getId(), 2, 4, game.getMinPlayTime(),
+                        game.getMaxPlayTime(), 3.5, game.getRank(), 7.5, game.getYearPublished()));
+            } else if (i % 11 == 0) {
+                removed.add(game.getId());
+            } else if (i % 13 == 0) {
+                upserts.add(new BoardGame("Delta " + game.getName(), game.getId(), 1, 1, 1, 1, 1.0,
+                        1, 1.0, 1999));
+            }
+            i++;
+        }
+        for (int id = 1; id <= 20; id++) {
+            upserts.add(new BoardGame("Zz Delta " + id, -id, 1, 4, 30, 60, 2.0, 5000 + id, 6.0, 2020));
+        }
+        CatalogDelta delta = new CatalogDelta(upserts, removed);
+        for (BoardGame game : upserts) {
+            expected.put(game.getId(), game);
+        }
+        removed.forEach(expected::remove);
+
+        GameStore updated = store.applyDelta(delta).store;
+        GameStore rebuilt = new GameStore(expected.values(), true);
+        assertEquals(expected.size(), updated.liveRows().cardinality());
+        for (String filter : FILTERS) {
+            assertEquals(run(rebuilt, filter), run(updated, filter), filter);
+        }
+        for (GameData col : GameData.values()) {
+            if (updated.getIndex(col) != null) {
+                ColumnIndex byId = col == GameData.ID ? null : updated.getIndex(GameData.ID);
+                assertArrayEquals(ColumnIndex.build(updated, col, byId).getSortedRows(),
+                        updated.getIndex(col).getSortedRows(), col.name());
+            }
+        }
+        // the old store is untouched.
+        assertEquals(run(store, "name~=the"), run(sample(), "name~=the"));
+
+        assertTrue(CatalogDelta.diff(updated, rebuilt).isEmpty());
+        CatalogDelta back = CatalogDelta.diff(updated, store);
+        assertEquals(run(store, "rating>6"), run(updated.applyDelta(back).store, "rating>6"));
+        assertEquals(store.size(), updated.applyDelta(back).store.compact().size());
+    }
+
+    @Test
+    void rejectUpsertAndRemove() {
+        assertThrows(IllegalArgumentException.class, () -> new CatalogDelta(
+                List.of(new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000)), List.of(1)));
+    }
+}
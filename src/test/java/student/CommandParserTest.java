@@ -0,0 +1,53 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandParserTest {
+
+    @Test
+    void parseRanges() {
+        assertArrayEquals(new int[] {1, 5, 9, 9, 12, 20}, CommandParser.parseRanges("1-5,9,12-20"));
+        assertArrayEquals(new int[] {3, 3}, CommandParser.parseRanges("3"));
+        assertArrayEquals(new int[] {1, 3, 7, 7}, CommandParser.parseRanges(" 1 - 3 , 7 "));
+        for (String text : new String[] {"", " ", "go", "1-", "-3", "1-2-3", "1,,2", "1,", "1 2",
+            "99999999999", "1-99999999999", "7 wonders"}) {
+            assertNull(CommandParser.parseRanges(text), text);
+        }
+    }
+
+    @Test
+    void wordsAndTokens() {
+        assertTrue(CommandParser.isWord("Go_Fish2"));
+        assertFalse(CommandParser.isWord("go fish"));
+        assertFalse(CommandParser.isWord(""));
+        assertEquals("name~=go,minplayers>=2sort:ratingdesc",
+                CommandParser.compact(" name ~= Go,\tminPlayers >= 2 sort:rating desc "));
+
+        CommandParser.Tokens tokens = new CommandParser.Tokens("  list   add 7 wonders  ");
+        assertEquals("list", tokens.next());
+        assertEquals("add", tokens.next());
+        assertTrue(tokens.hasNext());
+        assertEquals("7 wonders", tokens.rest());
+        assertFalse(tokens.hasNext());
+        assertEquals("", tokens.rest());
+        assertFalse(new CommandParser.Tokens("   ").hasNext());
+    }
+
+    @Test
+    void splitsFiltersAndSortKeys() {
+        assertEquals(List.of("a", "", "b", ""), CommandParser.split("a,,b,", ','));
+        assertEquals(List.of(""), CommandParser.split("", ','));
+
+        FilterPlan plan = FilterCompiler.compile("minplayers >= 2, name ~= go,maxplayers>=,"
+                + "rating>=1>=2,>=3");
+        assertEquals(2, plan.getClauses().size());
+        assertEquals(GameData.MIN_PLAYERS, plan.getClauses().get(0).getColumn());
+        assertEquals(Operations.CONTAINS, plan.getClauses().get(1).getOperator());
+
+        assertEquals("average:desc,yearpublished:desc,objectname:asc",
+                SortSpec.parse(" sort:rating desc, year : desc ,name").toString());
+    }
+}
@@ -0,0 +1,31 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsoleAppTest {
+
+    @Test
+    void scriptRunsWithoutPrompts() {
+        List<BoardGame> games = List.of(
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007));
+        Planner planner = new Catalog(new GameStore(games, true)).newSession();
+        IGameList list = new GameList();
+        String script = "# find the go games\n\nfilter name ~= go\nlist add 1-2\nlist\n";
+        StringWriter out = new StringWriter();
+        new ConsoleApp(list, planner, 1, new StringReader(script), out, true).start();
+
+        assertEquals(List.of("Go", "Go Fish"), list.getGameNames());
+        String text = out.toString();
+        assertFalse(text.contains("> "), text);
+        assertFalse(text.contains("Goodbye"), text);
+        assertTrue(text.contains("1: Go" + System.lineSeparator() + "2: Go Fish"), text);
+    }
+}
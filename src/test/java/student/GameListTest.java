@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -84,6 +85,45 @@ class GameListTest {
             System.out.println(game);
         }
         list1.removeFromList("Go");
-        assertEquals(List.of("Tucano", "17 days"), list1.getGameNames());
+        assertEquals(List.of("17 days", "Tucano"), list1.getGameNames());
     }
-}
\ No newline at end of file
+
+    @Test
+    void keepsNamesSortedWithBulkRanges() {
+        IGameList list1 = new GameList();
+        List<BoardGame> filtered = List.copyOf(GamesLoader.loadGamesFile("/collection.csv"));
+        list1.addToList("1-300", filtered);
+        list1.addToList("250-400", filtered);
+        list1.addToList("5", filtered);
+        List<String> expected = filtered.subList(0, 400).stream().map(BoardGame::getName)
+                .distinct().sorted(GameStore::compareNames).toList();
+        assertEquals(expected, list1.getGameNames());
+
+        list1.removeFromList("10-390");
+        assertEquals(expected.size() - 381, list1.count());
+        assertEquals(expected.subList(0, 9), list1.getGameNames().subList(0, 9));
+        list1.removeFromList("1");
+        assertEquals(expected.get(1), list1.getGameNames().get(0));
+        assertThrows(IllegalArgumentException.class, () -> list1.removeFromList("1-100"));
+    }
+
+    @Test
+    void multiRangeSpecs() {
+        IGameList list1 = new GameList();
+        List<BoardGame> filtered = List.copyOf(GamesLoader.loadGamesFile("/collection.csv"));
+        list1.addToList("1-5, 9,12-20", filtered);
+        List<String> expected = Stream.of(filtered.subList(0, 5),
+                filtered.subList(8, 9), filtered.subList(11, 20)).flatMap(List::stream)
+                .map(BoardGame::getName).distinct().sorted(GameStore::compareNames).toList();
+        assertEquals(expected, list1.getGameNames());
+        assertThrows(IllegalArgumentException.class, () -> list1.addToList("1-2,0", filtered));
+        assertEquals(expected.size(), list1.count());
+
+        list1.removeFromList("2-3,1,6-7,7");
+        assertEquals(expected.subList(3, 5), list1.getGameNames().subList(0, 2));
+        assertEquals(expected.subList(7, expected.size()), list1.getGameNames().subList(2,
+                list1.count()));
+        assertThrows(IllegalArgumentException.class, () -> list1.removeFromList("1,99"));
+        assertThrows(IllegalArgumentException.class, () -> list1.removeFromList("1-2-3"));
+    }
+}
@@ -0,0 +1,132 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GamesLoaderTest {
+    static final String HEADER = "objectname,objectid,extra,average,avgweight,rank,minplayers,"
+            + "maxplayers,maxplaytime,minplaytime,yearpublished\r\n";
+
+    static GameStore read(String csv) throws IOException {
+        GameStore.Builder builder = new GameStore.Builder();
+        GamesLoader.readRows(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), builder);
+        return builder.build(false);
+    }
+
+    @Test
+    void loadBundledCollection() {
+        Set<BoardGame> games = GamesLoader.loadGamesFile("/collection.csv");
+        assertEquals(753, games.size());
+        assertTrue(games.contains(new BoardGame("13 Clues", 208766, 0, 0, 0, 0, 0, 0, 0, 0)));
+    }
+
+    @Test
+    void parseRowsInPlace() throws IOException {
+        GameStore store = read(HEADER
+                + "Caf\u00e9,1,x,7.25,2.5e0,10,2,4,60,30,2001\r\n"
+                + "Short,2,x,7\n"
+                + "Bad,3,x,abc,2,10,2,4,60,30,2001\n"
+                + "Negative,4,,-1.5,+0.125,-3,1,1,1,1,-500");
+        assertEquals(2, store.size());
+        assertEquals("Caf\u00e9", store.getName(0));
+        BoardGame cafe = store.getGame(0);
+        assertEquals(7.25, cafe.getRating());
+        assertEquals(2.5, cafe.getDifficulty());
+        assertEquals(2001, cafe.getYearPublished());
+        BoardGame negative = store.getGame(1);
+        assertEquals(-1.5, negative.getRating());
+        assertEquals(0.125, negative.getDifficulty());
+        assertEquals(-3, negative.getRank());
+        assertEquals(-500, negative.getYearPublished());
+    }
+
+    @Test
+    void lineLongerThanBuffer() throws IOException {
+        String name = "x".repeat(200_000);
+        GameStore store = read(HEADER + name + ",1,x,1,1,1,1,1,1,1,1\n"
+                + name + ",1,x,1,1,1,1,1,1,1,1\n");
+        assertEquals(1, store.size());
+        assertEquals(name, store.getName(0));
+    }
+
+    @Test
+    void mappedChunksMatchStreaming(@TempDir Path dir) throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 500; i++) {
+            csv.append("Game ").append(i).append(',').append(i).append(",x,")
+                    .append(i % 10).append(".5,").append(i % 5).append(',').append(i)
+                    .append(",1,4,60,30,").append(1990 + i % 30).append(i % 7 == 0 ? "\r\n" : "\n");
+        }
+        Path file = dir.resolve("games.csv");
+        Files.writeString(file, csv);
+        GameStore streamed = read(csv.toString());
+        for (long chunk : new long[] {1, 37, 1000, 1 << 20}) {
+            GameStore mapped = GamesLoader.loadGameStore(file, false, chunk);
+            assertEquals(streamed.size(), mapped.size());
+            for (int row = 0; row < streamed.size(); row++) {
+                assertEquals(streamed.getGame(row).toString(), mapped.getGame(row).toString());
+            }
+        }
+        assertEquals(500, GamesLoader.loadGameStore(file, true).size());
+        assertEquals(0, GamesLoader.loadGameStore(dir.resolve("missing.csv"), false).size());
+    }
+
+    @Test
+    void snapshotRoundTrip(@TempDir Path dir) throws IOException {
+        GameStore store = GamesLoader.loadGameStore("/collection.csv", true);
+        Path file = dir.resolve("games.bgas");
+        assertTrue(GamesLoader.saveSnapshot(store, file));
+        GameStore loaded = GamesLoader.loadSnapshot(file, true);
+        assertEquals(store.size(), loaded.size());
+        for (int row = 0; row < store.size(); row++) {
+            assertEquals(store.getGame(row).toString(), loaded.getGame(row).toString());
+        }
+        assertArrayEquals(store.getIndex(GameData.RATING).getSortedRows(),
+                loaded.getIndex(GameData.RATING).getSortedRows());
+        FilterPlan plan = FilterCompiler.compile("name~=the,minPlayers>=2,rating>7");
+        assertEquals(plan.apply(store, RowSet.all(store.size())).cardinality(),
+                plan.apply(loaded, RowSet.all(loaded.size())).cardinality());
+
+        assertFalse(GamesLoader.loadSnapshot(file, false).isIndexed());
+        Files.write(file, new byte[] {1, 2, 3});
+        assertEquals(0, GamesLoader.loadSnapshot(file, true).size());
+    }
+
+    @Test
+    void corruptSnapshotsAreRejected(@TempDir Path dir) throws IOException {
+        GameStore store = read(HEADER + "Go,1,x,7.5,8.0,100,2,5,30,30,2000\r\n"
+                + "Chess,2,x,10.0,10.0,700,2,2,20,10,2006\r\n");
+        Path file = dir.resolve("games.bgas");
+        assertTrue(GamesLoader.saveSnapshot(store, file));
+        assertEquals(2, store.size());
+        byte[] good = Files.readAllBytes(file);
+        // rows, distinct names, and the first name code (after the header, 2 double and 7 int
+        // columns of 2 rows).
+        int nameCodes = 24 + 2 * 2 * Double.BYTES + 7 * 2 * Integer.BYTES;
+        int[][] patches = {{8, -1}, {12, -5}, {8, 1 << 30}, {12, 1 << 30}, {nameCodes, 7},
+            {nameCodes, -1}};
+        for (int[] patch : patches) {
+            byte[] bad = good.clone();
+            ByteBuffer.wrap(bad).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(patch[0], patch[1]);
+            Files.write(file, bad);
+            assertThrows(IOException.class, () -> StoreSnapshot.read(file, false),
+                    patch[0] + "=" + patch[1]);
+            assertEquals(0, GamesLoader.loadSnapshot(file, false).size());
+        }
+        Files.write(file, Arrays.copyOf(good, good.length - 3));
+        assertThrows(IOException.class, () -> StoreSnapshot.read(file, false));
+    }
+}
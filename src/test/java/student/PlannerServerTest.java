@@ -0,0 +1,97 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlannerServerTest {
+    private Catalog catalog;
+    private PlannerServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<BoardGame> games = List.of(
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("Monopoly \"Classic\"", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007));
+        catalog = new Catalog(new GameStore(games, true));
+        server = new PlannerServer(catalog, Parallelism.SEQUENTIAL);
+        server.start(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void sessionsFilterAndList() throws Exception {
+        HttpResponse<String> created = send("POST", "/sessions");
+        assertEquals(201, created.statusCode());
+        String id = created.body().substring(12, created.body().length() - 2);
+        String session = "/sessions/" + id;
+
+        HttpResponse<String> page = send("POST", session
+                + "/games?filter=name%20~%3D%20go&sort=rating:desc&limit=1");
+        assertEquals(200, page.statusCode());
+        assertTrue(page.body().startsWith("{\"offset\":0,\"total\":2,\"hasNext\":true,"
+                + "\"games\":[{\"objectname\":\"Go\",\"objectid\":1,\"average\":7.5,"), page.body());
+
+        String again = send("GET", session + "/games?offset=1").body();
+        assertTrue(again.startsWith("{\"offset\":1,\"total\":2,\"hasNext\":false,"
+                + "\"games\":[{\"objectname\":\"Go Fish\""), again);
+        assertEquals(400, send("GET", session + "/games?filter=name~%3Dfish").statusCode());
+        assertEquals(2, send("GET", session + "/games").body().split("objectname").length - 1);
+
+        assertEquals("{\"count\":2,\"games\":[\"Go\",\"Go Fish\"]}",
+                send("POST", session + "/list?add=1-2").body());
+        assertEquals(204, send("POST", session + "/reset").statusCode());
+        assertEquals("{\"count\":1,\"games\":[\"Go Fish\"]}",
+                send("POST", session + "/list?remove=Go").body());
+        String all = send("GET", session + "/games").body();
+        assertTrue(all.contains("\"Monopoly \\\"Classic\\\"\""), all);
+
+        assertEquals(400, send("GET", session + "/games?limit=x").statusCode());
+        assertEquals(405, send("GET", "/sessions").statusCode());
+        assertEquals(204, send("DELETE", session).statusCode());
+        assertEquals(404, send("GET", session + "/list").statusCode());
+        assertEquals(0, server.sessionCount());
+    }
+
+    @Test
+    void resultsFollowCatalogDeltas() throws Exception {
+        String created = send("POST", "/sessions").body();
+        String session = "/sessions/" + created.substring(12, created.length() - 2);
+        assertTrue(send("POST", session + "/games?filter=name%20~%3D%20go&sort=rating:desc")
+                .body().startsWith("{\"offset\":0,\"total\":2,"));
+
+        catalog.applyDelta(new CatalogDelta(List.of(
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 9.0, 2001),
+                new BoardGame("Gomoku", 3, 2, 2, 10, 30, 4.0, 300, 8.0, 1900)), List.of(1)));
+
+        String page = send("GET", session + "/games").body();
+        assertTrue(page.startsWith("{\"offset\":0,\"total\":2,\"hasNext\":false,"
+                + "\"games\":[{\"objectname\":\"Go Fish\",\"objectid\":2,\"average\":9.0,"),
+                page);
+        assertTrue(page.contains("\"Gomoku\""), page);
+        assertFalse(page.contains("\"Go\""), page);
+        assertEquals("{\"count\":2,\"games\":[\"Go Fish\",\"Gomoku\"]}",
+                send("POST", session + "/list?add=all").body());
+    }
+}
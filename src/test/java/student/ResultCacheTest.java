@@ -0,0 +1,47 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @Test
+    void evictLeastRecentlyUsedByWeight() {
+        ResultCache cache = new ResultCache(100);
+        cache.put("a", new int[30]);
+        cache.put("b", new int[30]);
+        assertNotNull(cache.get("a"));
+        cache.put("c", new int[30]); // 3 * (30 + 16) > 100, b is the least recently used.
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(92, cache.getWeight());
+
+        cache.put("huge", new int[200]);
+        assertNull(cache.get("huge"));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void keyIgnoresClauseSpelling() {
+        FilterPlan a = FilterCompiler.compile("rating>7, minPlayers>=04");
+        FilterPlan b = FilterCompiler.compile("minplayers >= 4,rating>7.0");
+        assertEquals(ResultCache.key(0, new TreeSet<>(keys(a)), SortSpec.DEFAULT),
+                ResultCache.key(0, new TreeSet<>(keys(b)), SortSpec.DEFAULT));
+        assertNotEquals(ResultCache.key(0, List.of(), SortSpec.DEFAULT),
+                ResultCache.key(0, List.of(), SortSpec.of(GameData.NAME, false)));
+        assertNotEquals(ResultCache.key(0, List.of(), SortSpec.DEFAULT),
+                ResultCache.key(1, List.of(), SortSpec.DEFAULT));
+    }
+
+    static List<String> keys(FilterPlan plan) {
+        return plan.getClauses().stream().map(FilterClause::getKey).toList();
+    }
+}
@@ -0,0 +1,131 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowOrderTest {
+    static final String[] SPECS = {"minPlayers", "minPlayers:desc", "rating desc", "ratingdesc",
+        "name", "id:desc", "maxPlayers:desc,year,name:desc", "year:desc,rating",
+        "difficulty,minPlayers:desc"};
+
+    @Test
+    void permutationWalkMatchesComparisonSort() {
+        List<BoardGame> games = List.copyOf(GamesLoader.loadGamesFile("/collection.csv"));
+        GameStore plain = new GameStore(games);
+        GameStore indexed = new GameStore(games, true);
+        for (String filter : new String[] {"", "minPlayers>=2", "name~=the", "rank<=300"}) {
+            RowSet rows = FilterCompiler.compile(filter).apply(indexed, indexed.liveRows());
+            for (GameData sortOn : GameData.values()) {
+                for (boolean ascending : new boolean[] {true, false}) {
+                    check(plain, indexed, rows, SortSpec.of(sortOn, ascending));
+                }
+            }
+            for (String spec : SPECS) {
+                check(plain, indexed, rows, SortSpec.parse(spec));
+            }
+        }
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        GameStore indexed = new GameStore(GamesLoader.loadGamesFile("/collection.csv"), true);
+        GameStore plain = new GameStore(GamesLoader.loadGamesFile("/collection.csv"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Parallelism parallel = Parallelism.of(pool, 8);
+            for (String filter : new String[] {"", "minPlayers>=2", "name~=the", "rank<=300"}) {
+                for (GameStore store : new GameStore[] {plain, indexed}) {
+                    FilterPlan plan = FilterCompiler.compile(filter);
+                    RowSet rows = plan.apply(store, store.liveRows());
+                    assertEquals(rows, plan.apply(store, store.liveRows(), parallel), filter);
+                    for (String spec : SPECS) {
+                        RowOrder order = new RowOrder(store, SortSpec.parse(spec));
+                        assertArrayEquals(order.sort(rows), order.sort(rows, parallel), spec);
+                        assertArrayEquals(order.top(rows, -1, 3, 40),
+                                order.top(rows, -1, 3, 40, parallel), spec);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> Parallelism.of(null, 0));
+    }
+
+    static void check(GameStore plain, GameStore indexed, RowSet rows, SortSpec spec) {
+        int[] expected = new RowOrder(plain, spec).sort(rows);
+        List<BoardGame> games = IntStream.of(expected).mapToObj(plain::getGame).toList();
+        assertEquals(games.stream().sorted(reference(spec)).toList(), games, spec.toString());
+
+        RowOrder order = new RowOrder(indexed, spec);
+        assertArrayEquals(expected, order.sort(rows), spec.toString());
+        int[] page = IntStream.range(5, Math.min(25, expected.length))
+                .map(i -> expected[i]).toArray();
+        assertArrayEquals(page, order.top(rows, -1, 5, 20));
+        if (expected.length > 10) {
+            int[] next = IntStream.range(11, Math.min(31, expected.length))
+                    .map(i -> expected[i]).toArray();
+            assertArrayEquals(next, order.top(rows, expected[10], 0, 20));
+        }
+    }
+
+    static Comparator<BoardGame> reference(SortSpec spec) {
+        Comparator<BoardGame> comparator = (a, b) -> 0;
+        for (int key = 0; key < spec.size(); key++) {
+            Comparator<BoardGame> column;
+            switch (spec.getColumn(key)) {
+                case NAME:
+                    column = Comparator.comparing(BoardGame::getName, GameStore::compareNames);
+                    break;
+                case RATING:
+                    column = Comparator.comparingDouble(BoardGame::getRating);
+                    break;
+                case DIFFICULTY:
+                    column = Comparator.comparingDouble(BoardGame::getDifficulty);
+                    break;
+                case ID:
+                    column = Comparator.comparingInt(BoardGame::getId);
+                    break;
+                case MIN_PLAYERS:
+                    column = Comparator.comparingInt(BoardGame::getMinPlayers);
+                    break;
+                case MAX_PLAYERS:
+                    column = Comparator.comparingInt(BoardGame::getMaxPlayers);
+                    break;
+                case MIN_TIME:
+                    column = Comparator.comparingInt(BoardGame::getMinPlayTime);
+                    break;
+                case MAX_TIME:
+                    column = Comparator.comparingInt(BoardGame::getMaxPlayTime);
+                    break;
+                case RANK:
+                    column = Comparator.comparingInt(BoardGame::getRank);
+                    break;
+                default:
+                    column = Comparator.comparingInt(BoardGame::getYearPublished);
+            }
+            comparator = comparator.thenComparing(
+                    spec.isAscending(key) ? column : column.reversed());
+        }
+        return comparator.thenComparingInt(BoardGame::getId);
+    }
+
+    @Test
+    void parseSortSpec() {
+        assertEquals("rank:asc,yearpublished:desc,objectname:asc",
+                SortSpec.parse("sort:rank,year:desc,name").toString());
+        assertEquals(SortSpec.of(GameData.RATING, false), SortSpec.parse("ratingdesc"));
+        assertEquals(SortSpec.of(GameData.RATING, false), SortSpec.parse(" Rating  DESC "));
+        assertEquals(SortSpec.parse("minplayers : asc"), SortSpec.parse("min_players"));
+        assertEquals(SortSpec.DEFAULT, SortSpec.parse(""));
+        assertEquals(1, SortSpec.parse("rank,rank:desc").size());
+        assertThrows(IllegalArgumentException.class, () -> SortSpec.parse("rank:up"));
+        assertThrows(IllegalArgumentException.class, () -> SortSpec.parse("color"));
+    }
+}
@@ -0,0 +1,38 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowSetTest {
+
+    @Test
+    void allAndNotStayInsideUniverse() {
+        RowSet all = RowSet.all(70);
+        assertEquals(70, all.cardinality());
+        assertTrue(all.not().isEmpty());
+        assertFalse(all.contains(70));
+    }
+
+    @Test
+    void combineWords() {
+        RowSet a = RowSet.of(130, new int[] {1, 64, 65, 129});
+        RowSet b = RowSet.of(130, new int[] {65, 2, 129});
+        assertArrayEquals(new int[] {65, 129}, a.and(b).toArray());
+        assertArrayEquals(new int[] {1, 2, 64, 65, 129}, a.or(b).toArray());
+        assertArrayEquals(new int[] {1, 64}, a.andNot(b).toArray());
+        assertEquals(126, a.not().cardinality());
+        assertEquals(RowSet.of(300, new int[] {1, 64, 65, 129}), a.resize(300));
+        assertArrayEquals(new int[] {1, 64, 65}, a.resize(100).toArray());
+    }
+
+    @Test
+    void selectAndNextRow() {
+        RowSet even = RowSet.select(RowSet.all(200), row -> row % 2 == 0);
+        assertEquals(100, even.cardinality());
+        assertEquals(128, even.nextRow(127));
+        assertEquals(-1, even.nextRow(199));
+        assertEquals(RowSet.of(200, new int[] {0, 198}),
+                RowSet.select(even, row -> row % 99 == 0));
+    }
+}
@@ -0,0 +1,80 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionManagerTest {
+    private SessionManager sessions;
+
+    @BeforeEach
+    void setUp() {
+        List<BoardGame> games = List.of(
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007));
+        sessions = new SessionManager(new Catalog(new GameStore(games, true)),
+                Parallelism.SEQUENTIAL, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessions.close();
+    }
+
+    @Test
+    void sessionsAreIsolatedAndEvicted() {
+        PlannerSession first = sessions.open();
+        PlannerSession second = sessions.open();
+        assertEquals(2, first.getPlanner().filter("name~=go").count());
+        assertEquals(4, second.getPlanner().filter("").count());
+        assertSame(first.getPlanner().getStore(), second.getPlanner().getStore());
+
+        long later = System.nanoTime() + Duration.ofMinutes(2).toNanos();
+        assertEquals(0, sessions.evictIdle());
+        assertEquals(2, sessions.evictIdle(later));
+        assertTrue(first.isClosed());
+        assertNull(sessions.get(first.getId()));
+        assertEquals(0, sessions.size());
+        assertFalse(sessions.close(second.getId()));
+    }
+
+    @Test
+    void consoleSessionsEndWithTheirInput() throws Exception {
+        StringWriter out = new StringWriter();
+        PlannerSession script = sessions.runConsole(
+                new StringReader("filter name ~= go\nlist add all\n"), out, true);
+        for (int i = 0; i < 500 && !script.isClosed(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(script.isClosed());
+        assertEquals(List.of("Go", "Go Fish"), script.getGameList().getGameNames());
+
+        int port = sessions.listen(0);
+        try (Socket socket = new Socket("localhost", port)) {
+            PrintWriter commands = new PrintWriter(socket.getOutputStream(), true);
+            commands.println("filter name ~= fish");
+            commands.println("exit");
+            String text = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8)).lines().collect(Collectors.joining("\n"));
+            assertTrue(text.contains("1: Go Fish"), text);
+        }
+        for (int i = 0; i < 500 && sessions.size() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, sessions.size());
+    }
+}